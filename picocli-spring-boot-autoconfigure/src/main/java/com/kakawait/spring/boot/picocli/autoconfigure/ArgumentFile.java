@@ -0,0 +1,243 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily read argument file, one argument per line.
+ *
+ * File is memory-mapped by windows and lines are only decoded while iterating, thus heap usage stays flat regardless
+ * of file size. File is only open while mapping a window, thus an iteration stopped early does not leak it. Blank
+ * lines and lines starting with {@code #} are ignored, surrounding whitespaces are trimmed.
+ *
+ * Can be used as {@link picocli.CommandLine.Option} or {@link picocli.CommandLine.Parameters} field type, the
+ * argument value being the file path:
+ *
+ * <pre>
+ * {@code
+ * @Parameters(paramLabel = "FILE", description = "file containing one id per line")
+ * ArgumentFile ids;
+ * }
+ * </pre>
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class ArgumentFile implements Iterable<String> {
+
+    private static final long DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Path path;
+
+    private final long windowSize;
+
+    private ArgumentFile(Path path, long windowSize) {
+        this.path = path;
+        this.windowSize = windowSize;
+    }
+
+    public static ArgumentFile of(Path path) {
+        Assert.notNull(path, "Path must not be null");
+        return new ArgumentFile(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static ArgumentFile of(String path) {
+        Assert.hasText(path, "Path must not be empty");
+        return of(ClientContext.current().resolve(path));
+    }
+
+    static ArgumentFile of(Path path, long windowSize) {
+        return new ArgumentFile(path, windowSize);
+    }
+
+    /**
+     * Expands every {@code @file} argument with arguments read from the file, {@code @@} escapes a literal {@code @}.
+     * @param args command line arguments
+     * @return expanded arguments or given arguments if there was nothing to expand
+     */
+    static String[] expand(String... args) {
+        int first = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != null && args[i].startsWith("@")) {
+                first = i;
+                break;
+            }
+        }
+        if (first < 0) {
+            return args;
+        }
+        List<String> expanded = new ArrayList<>(Arrays.asList(args).subList(0, first));
+        for (int i = first; i < args.length; i++) {
+            String arg = args[i];
+            if (arg == null || !arg.startsWith("@")) {
+                expanded.add(arg);
+            } else if (arg.startsWith("@@")) {
+                expanded.add(arg.substring(1));
+            } else {
+                for (String line : of(arg.substring(1))) {
+                    expanded.add(line);
+                }
+            }
+        }
+        return expanded.toArray(new String[expanded.size()]);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns an iterator over arguments, every iterator maps file again thus file can be iterated multiple times.
+     * @return arguments iterator
+     * @throws UncheckedIOException if file could not be opened or read
+     */
+    @Override
+    public Iterator<String> iterator() {
+        try {
+            return new LineIterator(path, Files.size(path), windowSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    private static class LineIterator implements Iterator<String> {
+
+        private final Path path;
+
+        private final long size;
+
+        private final long windowSize;
+
+        private MappedByteBuffer window;
+
+        private long windowPosition;
+
+        private String next;
+
+        LineIterator(Path path, long size, long windowSize) {
+            this.path = path;
+            this.size = size;
+            this.windowSize = windowSize;
+            this.windowPosition = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = readNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+
+        private String readNext() {
+            try {
+                String line;
+                while ((line = readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        return line;
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private String readLine() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                if (!map(window == null ? 0 : windowPosition + window.limit())) {
+                    return null;
+                }
+            }
+            int start = window.position();
+            int end = indexOfNewLine(window, start);
+            while (end < 0) {
+                long absoluteStart = windowPosition + start;
+                if (absoluteStart + window.limit() - start >= size) {
+                    // Last line without trailing new line
+                    end = window.limit();
+                    break;
+                }
+                if (window.limit() - start >= windowSize) {
+                    // Line larger than window, grow window to hold it
+                    if (!map(absoluteStart, window.limit() - start + windowSize)) {
+                        return null;
+                    }
+                } else if (!map(absoluteStart)) {
+                    return null;
+                }
+                start = 0;
+                end = indexOfNewLine(window, 0);
+            }
+            String line = decode(window, start, end);
+            window.position(Math.min(end + 1, window.limit()));
+            return line;
+        }
+
+        private boolean map(long position) throws IOException {
+            return map(position, windowSize);
+        }
+
+        private boolean map(long position, long length) throws IOException {
+            if (position >= size) {
+                return false;
+            }
+            // Mapping stays valid once channel is closed
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(length, size - position));
+            }
+            windowPosition = position;
+            return true;
+        }
+
+        private static int indexOfNewLine(ByteBuffer buffer, int from) {
+            for (int i = from; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String decode(ByteBuffer buffer, int start, int end) {
+            int length = end - start;
+            if (length > 0 && buffer.get(end - 1) == '\r') {
+                length -= 1;
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer line = buffer.duplicate();
+            line.position(start);
+            line.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
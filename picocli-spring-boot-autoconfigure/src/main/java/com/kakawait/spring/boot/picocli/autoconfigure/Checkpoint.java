@@ -0,0 +1,108 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Progress of the current invocation, allowing long running commands to skip completed work when rerun with
+ * {@code --resume} after a failure ({@code picocli.checkpoints.enabled}).
+ *
+ * Commands periodically {@link #save(String)} a progress token (last processed id, offset, ...) then, on resume,
+ * start after {@link #getToken()}. Checkpoints are keyed by command path and arguments, and are discarded once the
+ * invocation completes without error.
+ *
+ * <pre>
+ * {@code
+ * String last = Checkpoint.current().getToken();
+ * for (Batch batch : repository.findBatchesAfter(last)) {
+ *     process(batch);
+ *     Checkpoint.current().save(batch.getLastId());
+ * }
+ * }
+ * </pre>
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class Checkpoint implements AutoCloseable {
+
+    private static final Checkpoint NONE = new Checkpoint(null, null, null);
+
+    private static final ThreadLocal<Checkpoint> current = new ThreadLocal<>();
+
+    private final CheckpointStore store;
+
+    private final CheckpointStore.Log log;
+
+    private String token;
+
+    Checkpoint(CheckpointStore store, CheckpointStore.Log log, String token) {
+        this.store = store;
+        this.log = log;
+        this.token = token;
+    }
+
+    /**
+     * Returns checkpoint of current invocation.
+     * @return invocation checkpoint, a checkpoint ignoring saves if checkpoints are disabled or if there is no
+     * current invocation (calling thread is not the invocation one)
+     */
+    public static Checkpoint current() {
+        Checkpoint checkpoint = current.get();
+        return checkpoint == null ? NONE : checkpoint;
+    }
+
+    static void set(Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            current.remove();
+        } else {
+            current.set(checkpoint);
+        }
+    }
+
+    /**
+     * Returns last saved token.
+     * @return token saved by the previous run when resumed, or last token saved by the current run, {@code null} if
+     * none
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Records progress of current invocation, only the last token is kept.
+     * @param token progress token, must not be {@code null}
+     * @throws UncheckedIOException if token could not be written
+     */
+    public void save(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("Checkpoint token must not be null");
+        }
+        if (log == null) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                store.append(log, token);
+                this.token = token;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to save checkpoint " + token, e);
+        }
+    }
+
+    /**
+     * Discards checkpoint, invocation completed thus next run starts from scratch.
+     */
+    void complete() {
+        if (log != null) {
+            store.delete(log);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (log != null) {
+            store.close(log);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Local store of {@link Checkpoint}, one append-only log file per command path and arguments.
+ *
+ * Saving a checkpoint appends a single checksummed line, thus a write interrupted by a crash only loses that line and
+ * previous checkpoint is still readable. Once a log holds {@code compactionThreshold} lines, it is compacted to its
+ * last line in a temporary file atomically moved over the log.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CheckpointStore {
+
+    static final String RESUME_OPTION = "--resume";
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+
+    private final Path directory;
+
+    private final boolean fsync;
+
+    private final int compactionThreshold;
+
+    CheckpointStore(Path directory, boolean fsync, int compactionThreshold) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Removes {@link #RESUME_OPTION} from given arguments, unless the command it is given to declares that option.
+     * Options after {@code --} are left untouched.
+     * @param root root command line arguments are given to
+     * @param args command line arguments
+     * @return arguments without resume option, or given arguments if they do not contain it
+     */
+    static String[] removeResumeOption(CommandLine root, String... args) {
+        CommandLine current = root;
+        for (int i = 0; i < args.length && !"--".equals(args[i]); i++) {
+            CommandLine subcommand = current.getSubcommands().get(args[i]);
+            if (subcommand != null) {
+                current = subcommand;
+            } else if (RESUME_OPTION.equals(args[i]) && !declaresResumeOption(current.getCommand())) {
+                String[] remaining = new String[args.length - 1];
+                System.arraycopy(args, 0, remaining, 0, i);
+                System.arraycopy(args, i + 1, remaining, i, args.length - i - 1);
+                return remaining;
+            }
+        }
+        return args;
+    }
+
+    private static boolean declaresResumeOption(Object command) {
+        AtomicBoolean declared = new AtomicBoolean();
+        ReflectionUtils.doWithFields(AopUtils.getTargetClass(command), f -> declared.set(true),
+                f -> f.isAnnotationPresent(Option.class)
+                        && Arrays.asList(f.getAnnotation(Option.class).names()).contains(RESUME_OPTION));
+        return declared.get();
+    }
+
+    /**
+     * Opens checkpoint of given invocation.
+     * @param rootName root name, {@code null} if there is a single root
+     * @param path command path
+     * @param args command line arguments, without resume option
+     * @param resume {@code true} to load last token saved by a previous run, otherwise previous run is discarded on
+     * first save
+     * @return invocation checkpoint
+     * @throws IOException if previous checkpoint could not be read
+     */
+    Checkpoint open(String rootName, String path, String[] args, boolean resume) throws IOException {
+        Log log = new Log(directory.resolve(getKey(rootName, path, args) + ".log"));
+        String token = null;
+        if (resume) {
+            token = read(log.file);
+            logger.info("Resuming '{}' from checkpoint {}", path, token);
+        }
+        return new Checkpoint(this, log, token);
+    }
+
+    void append(Log log, String token) throws IOException {
+        if (log.channel == null) {
+            Files.createDirectories(directory);
+            // Starts a new log on first save, thus a previous run is only discarded once this one made progress
+            log.channel = FileChannel.open(log.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } else if (log.lines >= compactionThreshold) {
+            compact(log, token);
+            return;
+        }
+        write(log.channel, token);
+        log.lines++;
+    }
+
+    void delete(Log log) {
+        close(log);
+        try {
+            Files.deleteIfExists(log.file);
+        } catch (IOException e) {
+            logger.warn("Unable to delete checkpoint {}", log.file, e);
+        }
+    }
+
+    void close(Log log) {
+        if (log.channel == null) {
+            return;
+        }
+        try {
+            log.channel.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close checkpoint {}", log.file, e);
+        }
+        log.channel = null;
+    }
+
+    private void compact(Log log, String token) throws IOException {
+        Path temporary = Files.createTempFile(directory, log.file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            write(channel, token);
+        }
+        close(log);
+        Files.move(temporary, log.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.channel = FileChannel.open(log.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.lines = 1;
+    }
+
+    private void write(FileChannel channel, String token) throws IOException {
+        byte[] encoded = Base64.getEncoder().encode(token.getBytes(StandardCharsets.UTF_8));
+        CRC32 crc = new CRC32();
+        crc.update(encoded);
+        ByteBuffer line = StandardCharsets.US_ASCII.encode(String.format("%08x %s\n", crc.getValue(),
+                new String(encoded, StandardCharsets.US_ASCII)));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads last valid line of given log, lines with mismatching checksum (torn writes) are skipped.
+     */
+    private String read(Path file) throws IOException {
+        List<String> lines;
+        try {
+            // Torn lines may hold any byte, thus decode with a charset accepting every byte
+            lines = Files.readAllLines(file, StandardCharsets.ISO_8859_1);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            String line = lines.get(i);
+            int separator = line.indexOf(' ');
+            if (separator != 8) {
+                continue;
+            }
+            byte[] encoded = line.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+            CRC32 crc = new CRC32();
+            crc.update(encoded);
+            if (String.format("%08x", crc.getValue()).equals(line.substring(0, separator))) {
+                return new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String getKey(String rootName, String path, String[] args) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(String.valueOf(rootName).getBytes(StandardCharsets.UTF_8));
+        for (String part : args) {
+            digest.update((byte) 0);
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder key = new StringBuilder(path.isEmpty() ? "main" : path.replace(' ', '-')).append('-');
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 8; i++) {
+            key.append(String.format("%02x", hash[i]));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Log of a single invocation.
+     */
+    static final class Log {
+
+        private final Path file;
+
+        private FileChannel channel;
+
+        private int lines;
+
+        Log(Path file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import picocli.CommandLine.Command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Skips auto-configurations that are not required by commands on the invoked path when CLI mode is enabled
+ * ({@code picocli.cli-mode.enabled}).
+ *
+ * Commands declare their requirements using {@link CommandRequirements}. Invoked path is resolved from application
+ * arguments the same way command roots and {@link CommandPaths#resolve} do, from the selected main command through
+ * leading sub-command names, nested command classes defining the tree. Filtering only happens when the invoked command
+ * (last one of the path) declares its requirements, requirements of its parent commands are then added, otherwise
+ * every auto-configuration is applied.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CliModeImportFilter implements AutoConfigurationImportFilter, BeanFactoryAware, BeanClassLoaderAware,
+        EnvironmentAware {
+
+    static final String APPLICATION_ARGUMENTS_BEAN_NAME = "springApplicationArguments";
+
+    private static final Logger logger = LoggerFactory.getLogger(CliModeImportFilter.class);
+
+    private static final Set<String> ESSENTIALS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PicocliAutoConfiguration.class.getName(),
+            PropertyPlaceholderAutoConfiguration.class.getName(),
+            ConfigurationPropertiesAutoConfiguration.class.getName())));
+
+    private static final String MAIN_COMMAND_NAME = getMainCommandName();
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private ClassLoader classLoader;
+
+    private Environment environment;
+
+    private PicocliProperties properties;
+
+    /**
+     * Auto-configurations to apply, resolved on first {@link #match} call, {@code null} to apply every one.
+     */
+    private Set<String> requirements;
+
+    private boolean resolved;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ConfigurableListableBeanFactory) {
+            this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean[] match = new boolean[autoConfigurationClasses.length];
+        Arrays.fill(match, true);
+        if (beanFactory == null || !(environment instanceof ConfigurableEnvironment) || !isEnabled()) {
+            return match;
+        }
+        if (!resolved) {
+            requirements = getRequirements();
+            resolved = true;
+        }
+        if (requirements == null) {
+            return match;
+        }
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            String autoConfigurationClass = autoConfigurationClasses[i];
+            if (autoConfigurationClass != null && !requirements.contains(autoConfigurationClass)) {
+                logger.debug("Skipping auto-configuration {} not required by invoked commands", autoConfigurationClass);
+                match[i] = false;
+            }
+        }
+        return match;
+    }
+
+    private boolean isEnabled() {
+        // Cheap check first, full properties are only bound when CLI mode is enabled
+        if (!new RelaxedPropertyResolver(environment, "picocli.cli-mode.").getProperty("enabled", Boolean.class,
+                false)) {
+            return false;
+        }
+        if (properties == null) {
+            properties = PicocliProperties.bind((ConfigurableEnvironment) environment);
+        }
+        return properties.getCliMode().isEnabled();
+    }
+
+    /**
+     * Returns requirements of commands on the invoked path.
+     * @return requirements, {@code null} if invoked command does not declare its requirements
+     */
+    private Set<String> getRequirements() {
+        Map<String, Class<?>> mainCommands = new LinkedHashMap<>();
+        Map<Class<?>, Set<String>> commands = new LinkedHashMap<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            MethodMetadata factoryMethod = definition instanceof AnnotatedBeanDefinition
+                    ? ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata()
+                    : null;
+            Class<?> type = resolveClass(factoryMethod == null
+                    ? definition.getBeanClassName()
+                    : factoryMethod.getReturnTypeName());
+            Command command = type == null ? null : AnnotationUtils.findAnnotation(type, Command.class);
+            if (command == null) {
+                continue;
+            }
+            if (command.name().equals(MAIN_COMMAND_NAME)) {
+                mainCommands.put(beanName, type);
+            }
+            commands.put(type, getRequirements(type, factoryMethod));
+        }
+        List<Class<?>> path = getInvokedPath(mainCommands, commands.keySet());
+        if (path.isEmpty() || commands.get(path.get(path.size() - 1)) == null) {
+            return null;
+        }
+        Set<String> requirements = new HashSet<>(ESSENTIALS);
+        requirements.addAll(properties.getCliMode().getInclude());
+        for (Class<?> command : path) {
+            if (commands.get(command) != null) {
+                requirements.addAll(commands.get(command));
+            }
+        }
+        return requirements;
+    }
+
+    /**
+     * Returns command classes on the invoked path, selected main command first (if any).
+     */
+    private List<Class<?>> getInvokedPath(Map<String, Class<?>> mainCommands, Set<Class<?>> commands) {
+        List<Class<?>> path = new ArrayList<>();
+        String[] args = getArguments();
+        Class<?> current = null;
+        if (!mainCommands.isEmpty()) {
+            PicocliProperties.Roots roots = properties.getRoots();
+            String defaultRoot = StringUtils.hasText(roots.getDefaultRoot())
+                    ? roots.getDefaultRoot()
+                    : mainCommands.keySet().iterator().next();
+            String[] rootArgs = args;
+            if (mainCommands.size() > 1) {
+                CommandRoots.Selection selection = CommandRoots.select(mainCommands.keySet(), defaultRoot,
+                        roots.getVariable(), roots.isArgumentSelection(), args);
+                defaultRoot = selection.getName();
+                rootArgs = selection.getArgs();
+            }
+            current = mainCommands.get(defaultRoot);
+            if (current == null) {
+                return path;
+            }
+            path.add(current);
+            args = rootArgs;
+        }
+        for (String arg : args) {
+            Class<?> subcommand = getSubcommand(current, commands, arg);
+            if (subcommand == null) {
+                break;
+            }
+            path.add(subcommand);
+            current = subcommand;
+        }
+        return path;
+    }
+
+    private static Class<?> getSubcommand(Class<?> parent, Set<Class<?>> commands, String name) {
+        for (Class<?> command : commands) {
+            Class<?> enclosing = command.getEnclosingClass();
+            if (enclosing != null && !enclosing.isAnnotationPresent(Command.class)) {
+                enclosing = null;
+            }
+            // Sub-commands of a main command are either nested in it or top level ones
+            boolean child = enclosing == null
+                    ? parent == null || parent.getAnnotation(Command.class).name().equals(MAIN_COMMAND_NAME)
+                    : enclosing.equals(parent);
+            if (child && command.getAnnotation(Command.class).name().equals(name)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> getRequirements(Class<?> type, MethodMetadata factoryMethod) {
+        Map<String, Object> attributes = factoryMethod == null
+                ? null
+                : factoryMethod.getAnnotationAttributes(CommandRequirements.class.getName(), true);
+        CommandRequirements commandRequirements = AnnotationUtils.findAnnotation(type, CommandRequirements.class);
+        if (attributes == null && commandRequirements == null) {
+            return null;
+        }
+        Set<String> requirements = new HashSet<>();
+        if (attributes != null) {
+            requirements.addAll(Arrays.asList((String[]) attributes.get("value")));
+            requirements.addAll(Arrays.asList((String[]) attributes.get("names")));
+        }
+        if (commandRequirements != null) {
+            for (Class<?> autoConfigurationClass : commandRequirements.value()) {
+                requirements.add(autoConfigurationClass.getName());
+            }
+            requirements.addAll(Arrays.asList(commandRequirements.names()));
+        }
+        return requirements;
+    }
+
+    private String[] getArguments() {
+        if (beanFactory.containsSingleton(APPLICATION_ARGUMENTS_BEAN_NAME)) {
+            Object arguments = beanFactory.getSingleton(APPLICATION_ARGUMENTS_BEAN_NAME);
+            if (arguments instanceof ApplicationArguments) {
+                return ((ApplicationArguments) arguments).getSourceArgs();
+            }
+        }
+        return new String[0];
+    }
+
+    private Class<?> resolveClass(String className) {
+        if (className == null) {
+            return null;
+        }
+        try {
+            return ClassUtils.forName(className, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static String getMainCommandName() {
+        try {
+            return (String) Command.class.getMethod("name").getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
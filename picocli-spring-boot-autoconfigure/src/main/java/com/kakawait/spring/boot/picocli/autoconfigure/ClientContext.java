@@ -0,0 +1,112 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Working directory and environment variables of the process that requested current command invocation.
+ *
+ * Equals to current process ones, except when command is executed by a {@link CommandDaemon} on behalf of a
+ * {@link DaemonLauncher}. Commands that deal with relative paths or environment variables should use this class
+ * instead of {@link System#getenv()} or {@code user.dir} system property.
+ *
+ * Context is bound to the invoking thread only. Tasks executed on other threads must be wrapped using
+ * {@link #wrap(Runnable)} or {@link #wrap(Callable)} to see the context of the submitting thread.
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class ClientContext {
+
+    private static final ClientContext LOCAL = new ClientContext(Paths.get("").toAbsolutePath(), System.getenv());
+
+    private static final ThreadLocal<ClientContext> current = new ThreadLocal<>();
+
+    private final Path workingDirectory;
+
+    private final Map<String, String> environment;
+
+    ClientContext(Path workingDirectory, Map<String, String> environment) {
+        this.workingDirectory = workingDirectory;
+        this.environment = Collections.unmodifiableMap(environment);
+    }
+
+    /**
+     * Returns context of current invocation.
+     * @return client context, current process one if invocation was not requested by a remote client
+     */
+    public static ClientContext current() {
+        ClientContext context = current.get();
+        return context == null ? LOCAL : context;
+    }
+
+    /**
+     * Wraps given task in order to execute it with the client context of the calling thread.
+     * @param task task to wrap
+     * @return task bound to current client context, or given task if there is no remote client
+     */
+    public static Runnable wrap(Runnable task) {
+        ClientContext context = current.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            ClientContext previous = current.get();
+            current.set(context);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps given task in order to execute it with the client context of the calling thread.
+     * @param task task to wrap
+     * @param <V> task result type
+     * @return task bound to current client context, or given task if there is no remote client
+     */
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        ClientContext context = current.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            ClientContext previous = current.get();
+            current.set(context);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    static void set(ClientContext context) {
+        if (context == null) {
+            current.remove();
+        } else {
+            current.set(context);
+        }
+    }
+
+    public Path getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Resolves given path against client working directory.
+     * @param path absolute or relative path
+     * @return absolute path
+     */
+    public Path resolve(String path) {
+        return workingDirectory.resolve(path);
+    }
+}
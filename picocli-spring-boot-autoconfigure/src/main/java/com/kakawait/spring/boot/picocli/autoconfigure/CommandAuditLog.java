@@ -0,0 +1,291 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import com.kakawait.spring.boot.picocli.autoconfigure.PicocliProperties.Audit.Fsync;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Audit log of command invocations: command path, sanitized arguments, user, duration and exit status, one JSON
+ * object per line.
+ *
+ * Recording an invocation only enqueues an immutable record on a lock-free queue, formatting, writing and syncing are
+ * done in batches by a background writer thus invocations never wait for the file system. Remaining records are
+ * written and synced when the application context is closed, including on JVM shutdown.
+ *
+ * Log file is rotated once it exceeds maximum size: {@code audit.log} is renamed {@code audit.log.1}, previous
+ * {@code audit.log.1} is renamed {@code audit.log.2}, and so on up to maximum history.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandAuditLog implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandAuditLog.class);
+
+    private static final int BATCH_SIZE = 512;
+
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private final Path file;
+
+    private final Fsync fsync;
+
+    private final long fsyncInterval;
+
+    private final long maxFileSize;
+
+    private final int maxHistory;
+
+    private final Pattern sensitiveOptions;
+
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    private FileChannel channel;
+
+    private long size;
+
+    private long lastSync;
+
+    private boolean dirty;
+
+    CommandAuditLog(Path file, Fsync fsync, long fsyncInterval, TimeUnit unit, long maxFileSize, int maxHistory,
+            Pattern sensitiveOptions) {
+        this.file = file.toAbsolutePath();
+        this.fsync = fsync;
+        this.fsyncInterval = unit.toNanos(fsyncInterval);
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = maxHistory;
+        this.sensitiveOptions = sensitiveOptions;
+        this.writer = new Thread(this::drain, "picocli-audit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Records a finished invocation, never blocks.
+     * @param root root name, {@code null} for default root
+     * @param path command path, {@code null} if arguments could not be parsed
+     * @param args command line arguments as given by the client
+     * @param start invocation start, as returned by {@link System#nanoTime()}
+     * @param exitStatus exit status, {@code null} if invocation failed
+     * @param error invocation failure, {@code null} if invocation succeeded
+     */
+    void record(String root, String path, String[] args, long start, ExitStatus exitStatus, Throwable error) {
+        if (closed) {
+            logger.warn("Audit log {} is closed, invocation of '{}' is not recorded", file, path);
+            return;
+        }
+        Map<String, String> environment = ClientContext.current().getEnvironment();
+        String user = environment.containsKey("USER") ? environment.get("USER") : environment.get("USERNAME");
+        queue.offer(new Record(System.currentTimeMillis(), System.nanoTime() - start,
+                user == null ? System.getProperty("user.name") : user, root, path, args, exitStatus, error));
+        LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(writer);
+        writer.join(CLOSE_TIMEOUT);
+        if (writer.isAlive()) {
+            logger.warn("Audit log {} was not flushed within {}ms, {} records may be lost", file, CLOSE_TIMEOUT,
+                    queue.size());
+        }
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            // Read flag before polling, thus records enqueued before closing are always written
+            boolean closing = closed;
+            Record record;
+            int count = 0;
+            while (count < BATCH_SIZE && (record = queue.poll()) != null) {
+                record.appendTo(batch, sensitiveOptions);
+                count++;
+            }
+            if (count > 0) {
+                write(batch, count);
+                batch.setLength(0);
+            } else if (closing) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, fsync == Fsync.INTERVAL ? fsyncInterval : Long.MAX_VALUE);
+                sync(false);
+            }
+        }
+        sync(true);
+        closeChannel();
+    }
+
+    private void write(CharSequence batch, int count) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(batch.toString());
+        try {
+            if (channel == null) {
+                open();
+            } else if (size > 0 && size + buffer.remaining() > maxFileSize) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer);
+            }
+            dirty = true;
+            sync(fsync == Fsync.BATCH);
+        } catch (IOException e) {
+            logger.error("Unable to write {} records to audit log {}", count, file, e);
+            closeChannel();
+        }
+    }
+
+    private void sync(boolean force) {
+        if (channel == null || !dirty || fsync == Fsync.NEVER) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!force && now - lastSync < fsyncInterval) {
+            return;
+        }
+        try {
+            channel.force(false);
+            lastSync = now;
+            dirty = false;
+        } catch (IOException e) {
+            logger.error("Unable to sync audit log {}", file, e);
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+        lastSync = System.nanoTime();
+    }
+
+    private void rotate() throws IOException {
+        sync(true);
+        closeChannel();
+        if (maxHistory > 0) {
+            Files.deleteIfExists(getHistoryFile(maxHistory));
+            for (int i = maxHistory - 1; i >= 1; i--) {
+                Path source = getHistoryFile(i);
+                if (Files.exists(source)) {
+                    Files.move(source, getHistoryFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, getHistoryFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path getHistoryFile(int index) {
+        return Paths.get(file + "." + index);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close audit log {}", file, e);
+        }
+        channel = null;
+    }
+
+    private static final class Record {
+
+        private final long timestamp;
+
+        private final long duration;
+
+        private final String user;
+
+        private final String root;
+
+        private final String path;
+
+        private final String[] args;
+
+        private final ExitStatus exitStatus;
+
+        private final Throwable error;
+
+        Record(long timestamp, long duration, String user, String root, String path, String[] args,
+                ExitStatus exitStatus, Throwable error) {
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.user = user;
+            this.root = root;
+            this.path = path;
+            this.args = args;
+            this.exitStatus = exitStatus;
+            this.error = error;
+        }
+
+        void appendTo(StringBuilder line, Pattern sensitiveOptions) {
+            line.append("{\"timestamp\":");
+            appendString(line, Instant.ofEpochMilli(timestamp).toString());
+            line.append(",\"user\":");
+            appendString(line, user);
+            if (root != null) {
+                line.append(",\"root\":");
+                appendString(line, root);
+            }
+            line.append(",\"path\":");
+            appendString(line, path);
+            line.append(",\"args\":");
+            appendString(line, CommandTracer.sanitize(sensitiveOptions, args));
+            line.append(",\"durationMs\":").append(TimeUnit.NANOSECONDS.toMillis(duration));
+            line.append(",\"exitStatus\":");
+            appendString(line, error == null ? exitStatus.name() : "ERROR");
+            if (error != null) {
+                line.append(",\"error\":");
+                appendString(line, error.getClass().getName());
+            }
+            line.append("}\n");
+        }
+
+        private static void appendString(StringBuilder line, String value) {
+            if (value == null) {
+                line.append("null");
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c < 0x20) {
+                    line.append(String.format("\\u%04x", (int) c));
+                } else {
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+    }
+}
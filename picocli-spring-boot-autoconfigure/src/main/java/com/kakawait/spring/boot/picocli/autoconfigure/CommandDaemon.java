@@ -0,0 +1,176 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.FrameInputStream;
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.FrameOutputStream;
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps application warm and executes invocations forwarded by {@link DaemonLauncher} through the
+ * {@link PicocliCommandLineRunner} pipeline, streaming back output and exit code.
+ *
+ * Daemon only listens on loopback interface and requires the token written in its state file. Invocations are
+ * executed one at a time since commands are singletons holding parsed values. Daemon stops after an idle timeout or
+ * as soon as a client with a different classpath (application was rebuilt) connects.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandDaemon {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandDaemon.class);
+
+    private static final int DRAIN_TIMEOUT = 1000;
+
+    private final Path stateFile;
+
+    private final int idleTimeout;
+
+    private final String fingerprint;
+
+    private final String token = UUID.randomUUID().toString();
+
+    CommandDaemon(Path stateFile, int idleTimeout) {
+        this(stateFile, idleTimeout, DaemonProtocol.fingerprint(System.getProperty("java.class.path")));
+    }
+
+    CommandDaemon(Path stateFile, int idleTimeout, String fingerprint) {
+        this.stateFile = stateFile;
+        this.idleTimeout = idleTimeout;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Serves invocations until idle timeout or stale client.
+     * @param runner runner executing invocations
+     * @throws IOException if daemon could not listen or write its state
+     */
+    void serve(PicocliCommandLineRunner runner) throws IOException {
+        CommandDefaults defaults = CommandDefaults.of(runner.getCommandLines());
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(idleTimeout);
+            new State(server.getLocalPort(), token, fingerprint).write(stateFile);
+            logger.info("Daemon listening on port {}, state written to {}", server.getLocalPort(), stateFile);
+            boolean serving = true;
+            while (serving) {
+                try (Socket socket = server.accept()) {
+                    serving = handle(socket, runner, defaults);
+                } catch (SocketTimeoutException e) {
+                    logger.info("Daemon idle for {}ms, stopping", idleTimeout);
+                    serving = false;
+                } catch (IOException e) {
+                    logger.warn("Unable to handle daemon client", e);
+                }
+            }
+        } finally {
+            deleteState();
+        }
+    }
+
+    private boolean handle(Socket socket, PicocliCommandLineRunner runner, CommandDefaults defaults)
+            throws IOException {
+        socket.setSoTimeout(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        // Version and token always come first, whatever the protocol version
+        int version = in.readInt();
+        if (!token.equals(in.readUTF())) {
+            logger.warn("Daemon client rejected, invalid token");
+            return true;
+        }
+        if (version != DaemonProtocol.VERSION || !fingerprint.equals(in.readUTF())) {
+            logger.info("Daemon client classpath differs, stopping");
+            out.writeByte(DaemonProtocol.STALE);
+            out.flush();
+            return false;
+        }
+        Path workingDirectory = Paths.get(DaemonProtocol.readString(in));
+        Map<String, String> environment = new HashMap<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            environment.put(DaemonProtocol.readString(in), DaemonProtocol.readString(in));
+        }
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = DaemonProtocol.readString(in);
+        }
+
+        defaults.restore();
+        int exitCode = execute(runner, args, new ClientContext(workingDirectory, environment), in, out);
+        out.writeByte(DaemonProtocol.EXIT);
+        out.writeInt(exitCode);
+        out.flush();
+        drain(socket, in);
+        return true;
+    }
+
+    private int execute(PicocliCommandLineRunner runner, String[] args, ClientContext context, DataInputStream in,
+            DataOutputStream out) {
+        Exception failure = null;
+        ClientContext.set(context);
+        try (StandardStreams.Redirection ignored = StandardStreams.redirect(new FrameInputStream(in),
+                new FrameOutputStream(out, DaemonProtocol.STDOUT), new FrameOutputStream(out, DaemonProtocol.STDERR))) {
+            try {
+                return runner.execute(args) == ExitStatus.TERMINATION
+                        ? DaemonProtocol.TERMINATION
+                        : DaemonProtocol.OK;
+            } catch (Exception e) {
+                failure = e;
+                // Client only gets a summary, stack trace stays in daemon log
+                System.err.println("Error: " + e + " (see daemon log for details)");
+                return DaemonProtocol.FAILED;
+            }
+        } finally {
+            ClientContext.set(null);
+            // Once redirection is closed, thus console logs are not sent to the client
+            if (failure != null) {
+                logger.error("Daemon invocation failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Waits for client to close connection, closing a socket with unread standard input could reset the connection
+     * before client reads exit frame.
+     */
+    private void drain(Socket socket, InputStream in) {
+        try {
+            socket.shutdownOutput();
+            socket.setSoTimeout(DRAIN_TIMEOUT);
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // discard remaining standard input
+            }
+        } catch (IOException e) {
+            logger.debug("Daemon client did not close connection", e);
+        }
+    }
+
+    private void deleteState() {
+        try {
+            State state = State.read(stateFile);
+            // Another daemon may already have replaced our state
+            if (state != null && token.equals(state.token)) {
+                Files.deleteIfExists(stateFile);
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to delete daemon state {}", stateFile, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of {@link Option} and {@link Parameters} fields initial values of a whole command line tree.
+ *
+ * Picocli only assigns fields of matched options, thus long living command instances (like in a daemon) must be
+ * restored to their initial values before every parsing.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandDefaults {
+
+    private final List<Object> commands = new ArrayList<>();
+
+    private final List<Field> fields = new ArrayList<>();
+
+    private final List<Object> values = new ArrayList<>();
+
+    private CommandDefaults() {
+    }
+
+    static CommandDefaults of(Collection<CommandLine> roots) {
+        CommandDefaults defaults = new CommandDefaults();
+        // Commands may be shared by several roots
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CommandLine root : roots) {
+            defaults.snapshot(root, visited);
+        }
+        return defaults;
+    }
+
+    void restore() {
+        for (int i = 0; i < fields.size(); i++) {
+            ReflectionUtils.setField(fields.get(i), commands.get(i), ParsePlanCache.copy(values.get(i)));
+        }
+    }
+
+    private void snapshot(CommandLine commandLine, Set<Object> visited) {
+        Object command = commandLine.getCommand();
+        if (!visited.add(command)) {
+            return;
+        }
+        ReflectionUtils.doWithFields(command.getClass(), f -> {
+            ReflectionUtils.makeAccessible(f);
+            commands.add(command);
+            fields.add(f);
+            values.add(ParsePlanCache.copy(ReflectionUtils.getField(f, command)));
+        }, f -> f.isAnnotationPresent(Option.class) || f.isAnnotationPresent(Parameters.class));
+        for (CommandLine subcommand : commandLine.getSubcommands().values()) {
+            snapshot(subcommand, visited);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine.Option;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatch information of a command class, computed once per class thus dispatching a command does not need any
+ * reflection lookup nor allocation.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandDescriptor {
+
+    private static final Field[] NO_FIELDS = new Field[0];
+
+    private static final ClassValue<CommandDescriptor> descriptors = new ClassValue<CommandDescriptor>() {
+        @Override
+        protected CommandDescriptor computeValue(Class<?> type) {
+            return new CommandDescriptor(type);
+        }
+    };
+
+    private final Class<?> targetClass;
+
+    private final CommandInvoker invoker;
+
+    private final Field[] helpFields;
+
+    private CommandDescriptor(Class<?> type) {
+        // Same as AopUtils.getTargetClass() for class based proxies
+        this.targetClass = ClassUtils.getUserClass(type);
+        this.invoker = CommandInvoker.of(type, targetClass);
+        List<Field> fields = new ArrayList<>();
+        ReflectionUtils.doWithFields(targetClass, f -> {
+            ReflectionUtils.makeAccessible(f);
+            fields.add(f);
+        }, f -> f.isAnnotationPresent(Option.class) && f.getAnnotation(Option.class).help());
+        this.helpFields = fields.isEmpty() ? NO_FIELDS : fields.toArray(new Field[fields.size()]);
+    }
+
+    static CommandDescriptor of(Object command) {
+        return descriptors.get(command.getClass());
+    }
+
+    Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    CommandInvoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Returns {@code true} if any help {@link Option} of given command is set.
+     * @param command command instance described by this descriptor
+     * @return {@code true} if help was requested
+     */
+    boolean isHelpRequested(Object command) {
+        for (Field field : helpFields) {
+            try {
+                if (field.getBoolean(command)) {
+                    return true;
+                }
+            } catch (IllegalAccessException e) {
+                ReflectionUtils.handleReflectionException(e);
+            }
+        }
+        return false;
+    }
+}
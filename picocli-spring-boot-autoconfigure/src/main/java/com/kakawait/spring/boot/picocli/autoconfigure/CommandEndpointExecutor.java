@@ -0,0 +1,187 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes commands on behalf of {@link PicocliEndpoint}, through the same pipeline than
+ * {@link PicocliCommandLineRunner} with captured standard streams.
+ *
+ * Command instances (and their option fields) are shared by every invocation, thus invocations are executed one at a
+ * time by a dedicated thread, option fields being restored to their initial values before each one (like
+ * {@link CommandDaemon}). Admission is bounded twice: by a queue of pending invocations and by a per command limit of
+ * admitted (pending or running) invocations, thus heavy commands can not fill the whole queue. Per command limits
+ * are keyed by command path, prefixed by root name for roots other than the default one. Callers only wait up to a
+ * timeout, an invocation still pending after the timeout is cancelled.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandEndpointExecutor implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandEndpointExecutor.class);
+
+    private final ObjectProvider<PicocliCommandLineRunner> runnerProvider;
+
+    private final int defaultLimit;
+
+    private final Map<String, Integer> limits;
+
+    private final long timeout;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    private PicocliCommandLineRunner runner;
+
+    private CommandDefaults defaults;
+
+    CommandEndpointExecutor(ObjectProvider<PicocliCommandLineRunner> runnerProvider, int queueCapacity,
+            int defaultLimit, Map<String, Integer> limits, long timeout, TimeUnit unit) {
+        this.runnerProvider = runnerProvider;
+        this.defaultLimit = defaultLimit;
+        this.limits = limits;
+        this.timeout = unit.toMillis(timeout);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "picocli-endpoint");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Snapshots option fields before command line runners are executed.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        runner = runnerProvider.getIfAvailable();
+        if (runner != null) {
+            defaults = CommandDefaults.of(runner.getCommandLines());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Executes given arguments, waiting for the execution up to the timeout.
+     * @param args command line arguments
+     * @return execution description: path, exit status, captured standard output and error
+     * @throws RejectedExecutionException if queue is full or command limit is reached
+     * @throws TimeoutException if execution did not complete in time
+     * @throws InterruptedException if interrupted while waiting for execution
+     */
+    Map<String, Object> execute(String... args) throws TimeoutException, InterruptedException {
+        CompletableFuture<Map<String, Object>> execution = submit(args);
+        try {
+            return execution.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            execution.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Admits execution of given arguments without waiting for it.
+     * @param args command line arguments
+     * @return execution description (path, exit status, captured standard output and error) once completed, cancelling
+     * it only cancels a pending execution, a running command can not be safely interrupted
+     * @throws RejectedExecutionException if queue is full or command limit is reached
+     */
+    CompletableFuture<Map<String, Object>> submit(String... args) {
+        if (runner == null) {
+            throw new IllegalStateException("No " + PicocliCommandLineRunner.class.getSimpleName() + " available");
+        }
+        String path = runner.resolvePath(args);
+        Semaphore permit = permits.computeIfAbsent(path, p -> new Semaphore(limits.getOrDefault(p, defaultLimit)));
+        if (!permit.tryAcquire()) {
+            throw new RejectedExecutionException("Too many invocations of command '" + path + "'");
+        }
+        CompletableFuture<Map<String, Object>> execution = new CompletableFuture<>();
+        // Either the executing thread or a cancellation claims the invocation, thus permit is released exactly once
+        AtomicBoolean claimed = new AtomicBoolean();
+        Runnable task = () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            Map<String, Object> result;
+            try {
+                result = doExecute(path, args);
+            } finally {
+                // Before completion, thus a caller notified of completion can immediately invoke command again
+                permit.release();
+            }
+            execution.complete(result);
+        };
+        execution.whenComplete((r, e) -> {
+            if (execution.isCancelled() && claimed.compareAndSet(false, true)) {
+                executor.remove(task);
+                permit.release();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            throw new RejectedExecutionException("Too many pending invocations, rejected command '" + path + "'", e);
+        }
+        return execution;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    PicocliCommandLineRunner getRunner() {
+        return runner;
+    }
+
+    int getPendingCount() {
+        return executor.getQueue().size();
+    }
+
+    private Map<String, Object> doExecute(String path, String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Map<String, Object> execution = new LinkedHashMap<>();
+        execution.put("args", Arrays.asList(args));
+        execution.put("path", path);
+        long start = System.nanoTime();
+        try (StandardStreams.Redirection ignored = StandardStreams.redirect(out, err)) {
+            defaults.restore();
+            execution.put("exitStatus", runner.execute(args));
+        } catch (Exception e) {
+            logger.warn("Command '{}' failed", path, e);
+            execution.put("exitStatus", null);
+            execution.put("error", e.getClass().getName() + ": " + e.getMessage());
+        }
+        execution.put("duration", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        execution.put("out", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        execution.put("err", new String(err.toByteArray(), StandardCharsets.UTF_8));
+        return execution;
+    }
+}
@@ -0,0 +1,66 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.ClassUtils;
+import picocli.CommandLine;
+
+import java.util.List;
+
+/**
+ * Emits Java Flight Recorder events of parsing, help resolution, command execution and tree build, see
+ * {@link FlightRecorderEvents} for events definition.
+ *
+ * Events are only created while a recording is enabled for them, every method is a no-op on runtimes without Java
+ * Flight Recorder. Methods starting an event return an opaque handle that must be given to the matching end method,
+ * {@code null} handles are ignored.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandEvents {
+
+    private static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.FlightRecorder",
+            CommandEvents.class.getClassLoader());
+
+    private CommandEvents() {
+    }
+
+    static Object beginParse() {
+        return AVAILABLE ? FlightRecorderEvents.beginParse() : null;
+    }
+
+    static void endParse(Object event, CommandLine root, List<CommandLine> commands, int arguments) {
+        if (event != null) {
+            FlightRecorderEvents.endParse(event, root, commands, arguments);
+        }
+    }
+
+    static Object beginHelpResolution() {
+        return AVAILABLE ? FlightRecorderEvents.beginHelpResolution() : null;
+    }
+
+    static void endHelpResolution(Object event, List<CommandLine> commands, boolean helpRequested) {
+        if (event != null) {
+            FlightRecorderEvents.endHelpResolution(event, commands, helpRequested);
+        }
+    }
+
+    static Object beginCommandExecution() {
+        return AVAILABLE ? FlightRecorderEvents.beginCommandExecution() : null;
+    }
+
+    static void endCommandExecution(Object event, List<CommandLine> commands, int index, Object result,
+            Throwable error) {
+        if (event != null) {
+            FlightRecorderEvents.endCommandExecution(event, commands, index, result, error);
+        }
+    }
+
+    static Object beginTreeBuild() {
+        return AVAILABLE ? FlightRecorderEvents.beginTreeBuild() : null;
+    }
+
+    static void endTreeBuild(Object event, String root, CommandLine cli) {
+        if (event != null) {
+            FlightRecorderEvents.endTreeBuild(event, root, cli);
+        }
+    }
+}
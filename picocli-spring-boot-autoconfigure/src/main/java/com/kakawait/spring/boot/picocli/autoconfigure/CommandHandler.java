@@ -0,0 +1,32 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method executed when an {@code @Command} is invoked, as an alternative to implement {@link Runnable},
+ * {@link java.util.concurrent.Callable} or {@link PicocliCommand#run()}.
+ *
+ * Handler parameters are injected by type:
+ * <ul>
+ * <li>{@link picocli.CommandLine}: current command context</li>
+ * <li>{@link java.util.List}: result of {@link picocli.CommandLine#parse(String...)}</li>
+ * <li>{@link ClientContext}: context of the invoking client</li>
+ * <li>{@link Checkpoint}: checkpoint of the current invocation</li>
+ * <li>{@link Progress}: progress of the current invocation</li>
+ * <li>any other type: bean of given type</li>
+ * </ul>
+ *
+ * Returning {@link ExitStatus#TERMINATION} stops the execution of the following commands. At most one handler is
+ * allowed per command class, it must not be {@code private} for proxied commands.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CommandHandler {
+}
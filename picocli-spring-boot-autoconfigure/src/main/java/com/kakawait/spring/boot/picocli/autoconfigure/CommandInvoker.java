@@ -0,0 +1,169 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Entry point of a command class, resolved once as a single {@link MethodHandle} thus every command, whatever its
+ * kind ({@link CommandHandler} method, {@link PicocliCommand}, {@link Runnable} or {@link Callable}), is invoked
+ * through the same call site.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandInvoker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandInvoker.class);
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final Class<?>[] CONTEXT_TYPES =
+            {CommandLine.class, List.class, CommandLine.class, BeanFactory.class};
+
+    private final MethodHandle handle;
+
+    private CommandInvoker(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Resolves entry point of given command class.
+     * @param type command class, may be a proxy class
+     * @param targetClass user class of the command
+     * @return command invoker
+     * @throws IllegalStateException if command declares more than one {@link CommandHandler}
+     */
+    static CommandInvoker of(Class<?> type, Class<?> targetClass) {
+        try {
+            Method handler = findHandler(targetClass);
+            MethodHandle handle;
+            if (handler != null) {
+                handle = getHandlerHandle(handler);
+            } else if (Callable.class.isAssignableFrom(type)) {
+                // Including PicocliCommand
+                handle = withContext(lookup.findVirtual(Callable.class, "call", MethodType.methodType(Object.class)));
+            } else if (Runnable.class.isAssignableFrom(type)) {
+                handle = withContext(lookup.findVirtual(Runnable.class, "run", MethodType.methodType(void.class)));
+            } else {
+                handle = withContext(lookup.findStatic(CommandInvoker.class, "unsupported",
+                        MethodType.methodType(Object.class, Object.class)));
+            }
+            if (PicocliCommand.class.isAssignableFrom(type)) {
+                handle = MethodHandles.foldArguments(handle, lookup.findStatic(CommandInvoker.class,
+                        "bindContexts", MethodType.methodType(void.class, Object.class, CONTEXT_TYPES)));
+            }
+            return new CommandInvoker(handle);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to resolve entry point of command " + targetClass, e);
+        }
+    }
+
+    /**
+     * Invokes command entry point.
+     * @param command command instance
+     * @param commandLine current command context
+     * @param commands result of {@link CommandLine#parse(String...)}
+     * @param root root command context
+     * @param beanFactory bean factory used to resolve {@link CommandHandler} parameters, may be {@code null}
+     * @return command result, {@code null} for commands without result
+     * @throws Exception any exception thrown by the command
+     */
+    Object invoke(Object command, CommandLine commandLine, List<CommandLine> commands, CommandLine root,
+            BeanFactory beanFactory) throws Exception {
+        try {
+            return (Object) handle.invokeExact(command, commandLine, commands, root, beanFactory);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private static Method findHandler(Class<?> targetClass) {
+        List<Method> handlers = new ArrayList<>();
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(targetClass)) {
+            if (AnnotationUtils.findAnnotation(method, CommandHandler.class) != null) {
+                handlers.add(method);
+            }
+        }
+        if (handlers.size() > 1) {
+            throw new IllegalStateException("Multiple @CommandHandler methods found on " + targetClass + " "
+                    + handlers);
+        }
+        return handlers.isEmpty() ? null : handlers.get(0);
+    }
+
+    private static MethodHandle getHandlerHandle(Method handler) throws ReflectiveOperationException {
+        ReflectionUtils.makeAccessible(handler);
+        Class<?>[] parameterTypes = handler.getParameterTypes();
+        // (Object command, Object... arguments)Object, void and primitive results are adapted to null and wrappers
+        MethodHandle method = lookup.unreflect(handler)
+                .asType(MethodType.genericMethodType(parameterTypes.length + 1));
+        if (parameterTypes.length == 0) {
+            return withContext(method);
+        }
+        MethodHandle resolver = lookup.findStatic(CommandInvoker.class, "resolveArguments",
+                MethodType.methodType(Object[].class, Class[].class, CONTEXT_TYPES));
+        return MethodHandles.collectArguments(method.asSpreader(Object[].class, parameterTypes.length), 1,
+                MethodHandles.insertArguments(resolver, 0, (Object) parameterTypes));
+    }
+
+    /**
+     * Adapts a {@code (command)} handle to the invoker type {@code (command, context...)Object}.
+     */
+    private static MethodHandle withContext(MethodHandle handle) {
+        return MethodHandles.dropArguments(handle.asType(MethodType.methodType(Object.class, Object.class)), 1,
+                CONTEXT_TYPES);
+    }
+
+    private static Object[] resolveArguments(Class<?>[] parameterTypes, CommandLine commandLine,
+            List<CommandLine> commands, CommandLine root, BeanFactory beanFactory) {
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (type == CommandLine.class) {
+                arguments[i] = commandLine;
+            } else if (type == List.class) {
+                arguments[i] = commands;
+            } else if (type == ClientContext.class) {
+                arguments[i] = ClientContext.current();
+            } else if (type == Checkpoint.class) {
+                arguments[i] = Checkpoint.current();
+            } else if (type == Progress.class) {
+                arguments[i] = Progress.current();
+            } else if (beanFactory != null) {
+                arguments[i] = beanFactory.getBean(type);
+            } else {
+                throw new IllegalStateException("No bean factory available to resolve @CommandHandler parameter "
+                        + "of type " + type.getName());
+            }
+        }
+        return arguments;
+    }
+
+    private static void bindContexts(Object command, CommandLine commandLine, List<CommandLine> commands,
+            CommandLine root, BeanFactory beanFactory) {
+        PicocliCommand picocliCommand = (PicocliCommand) command;
+        picocliCommand.setContext(commandLine);
+        picocliCommand.setRootContext(root);
+        picocliCommand.setParsedCommands(commands);
+    }
+
+    private static Object unsupported(Object command) {
+        logger.debug("Command {} is triggered but does not implement {} neither {}",
+                command, Runnable.class, Callable.class);
+        return null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.aop.support.AopUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers to compute the path (sub-command names) of a parsed command line.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandPaths {
+
+    private CommandPaths() {
+    }
+
+    /**
+     * Returns sub-command names involved in the parsing result, main command excluded.
+     * @param commands result of {@link CommandLine#parse(String...)}
+     * @return ordered list of sub-command names as they were registered
+     */
+    static List<String> names(List<CommandLine> commands) {
+        List<String> names = new ArrayList<>(commands.size());
+        for (int i = 1; i < commands.size(); i++) {
+            names.add(getName(commands.get(i - 1), commands.get(i)));
+        }
+        return names;
+    }
+
+    /**
+     * Returns sub-command names involved in the parsing result separated by a space, main command excluded.
+     * @param commands result of {@link CommandLine#parse(String...)}
+     * @return command path, empty when only main command was involved
+     */
+    static String of(List<CommandLine> commands) {
+        return String.join(" ", names(commands));
+    }
+
+    /**
+     * Returns arguments up to the name of the last parsed command, thus parent command options and sub-command names.
+     * @param commands result of {@link CommandLine#parse(String...)}, possibly truncated
+     * @param args command line arguments commands were parsed from
+     * @return leading arguments, or sub-command names only if a name cannot be found in arguments
+     */
+    static List<String> leadingArgs(List<CommandLine> commands, String... args) {
+        List<String> names = names(commands);
+        int position = 0;
+        for (String name : names) {
+            while (position < args.length && !args[position].equals(name)) {
+                position++;
+            }
+            if (position == args.length) {
+                return names;
+            }
+            position++;
+        }
+        return new ArrayList<>(Arrays.asList(args).subList(0, position));
+    }
+
+    /**
+     * Returns path of the command invoked by given arguments without parsing them, thus only leading sub-command names
+     * are considered.
+     * @param root root command line
+     * @param args command line arguments
+     * @return command path, empty when leading argument is not a sub-command name
+     */
+    static String resolve(CommandLine root, String... args) {
+        List<String> names = new ArrayList<>();
+        CommandLine current = root;
+        for (String arg : args) {
+            current = current.getSubcommands().get(arg);
+            if (current == null) {
+                break;
+            }
+            names.add(arg);
+        }
+        return String.join(" ", names);
+    }
+
+    private static String getName(CommandLine parent, CommandLine child) {
+        // Registered name may differ from @Command name when sub-command was added manually
+        for (Map.Entry<String, CommandLine> entry : parent.getSubcommands().entrySet()) {
+            if (entry.getValue() == child) {
+                return entry.getKey();
+            }
+        }
+        Command command = AopUtils.getTargetClass(child.getCommand()).getAnnotation(Command.class);
+        return command == null ? "" : command.name();
+    }
+}
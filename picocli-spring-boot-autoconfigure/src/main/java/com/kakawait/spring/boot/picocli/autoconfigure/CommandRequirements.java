@@ -0,0 +1,32 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares auto-configurations required by a command when CLI mode ({@code picocli.cli-mode.enabled}) is enabled.
+ *
+ * When at least one command on the invoked path declares its requirements, only required auto-configurations (and
+ * {@code picocli.cli-mode.include} ones) are applied. Requirements are not transitive, thus
+ * {@code FlywayAutoConfiguration} requirement must come with {@code DataSourceAutoConfiguration} one.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CommandRequirements {
+
+    /**
+     * Required auto-configuration classes.
+     */
+    Class<?>[] value() default {};
+
+    /**
+     * Required auto-configuration class names, for classes that may not be present on classpath.
+     */
+    String[] names() default {};
+}
@@ -0,0 +1,267 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches output and {@link ExitStatus} of read-only commands in order to replay them on identical invocations.
+ *
+ * Results are keyed by command path plus normalized arguments, expire after a time to live and are evicted in least
+ * recently used order once maximum size is reached. Results can optionally be persisted to a local file to be shared
+ * between separate JVM invocations.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandResultCache.class);
+
+    private static final int FILE_VERSION = 1;
+
+    private final Set<String> commands;
+
+    private final long timeToLive;
+
+    private final int maxSize;
+
+    private final Path file;
+
+    private final Map<String, Result> results;
+
+    private boolean loaded;
+
+    CommandResultCache(Collection<String> commands, long timeToLive, TimeUnit unit, int maxSize, Path file) {
+        this.commands = new HashSet<>();
+        for (String command : commands) {
+            this.commands.add(String.join(" ", normalize(command.split("\\s+"))));
+        }
+        this.timeToLive = unit.toMillis(timeToLive);
+        this.maxSize = maxSize;
+        this.file = file;
+        this.results = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > CommandResultCache.this.maxSize;
+            }
+        };
+        this.loaded = file == null;
+    }
+
+    /**
+     * Returns cache key for given invocation.
+     * @param parsedCommands result of {@link CommandLine#parse(String...)}
+     * @param args raw arguments
+     * @return cache key or {@code null} if invoked command is not cacheable
+     */
+    String getKey(List<CommandLine> parsedCommands, String... args) {
+        String path = CommandPaths.of(parsedCommands);
+        if (!commands.contains(path)) {
+            return null;
+        }
+        return path + '\u0000' + String.join("\u0000", normalize(args));
+    }
+
+    /**
+     * Replays cached result for given key if any, otherwise executes and caches its result.
+     * @param key cache key returned by {@link #getKey(List, String...)}
+     * @param execution command execution
+     * @return cached or computed exit status
+     * @throws Exception any exception thrown by execution, in that case nothing is cached
+     */
+    ExitStatus execute(String key, Callable<ExitStatus> execution) throws Exception {
+        Result cached = get(key);
+        if (cached != null) {
+            logger.debug("Replay cached result for {}", key);
+            StandardStreams.currentOut().write(cached.out);
+            StandardStreams.currentOut().flush();
+            StandardStreams.currentErr().write(cached.err);
+            StandardStreams.currentErr().flush();
+            return cached.exitStatus;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ExitStatus exitStatus;
+        try (StandardStreams.Redirection ignored = StandardStreams.redirect(
+                new TeeOutputStream(StandardStreams.currentOut(), out),
+                new TeeOutputStream(StandardStreams.currentErr(), err))) {
+            exitStatus = execution.call();
+        }
+        put(key, new Result(exitStatus, out.toByteArray(), err.toByteArray(),
+                System.currentTimeMillis() + timeToLive));
+        return exitStatus;
+    }
+
+    synchronized void clear() {
+        results.clear();
+        save();
+    }
+
+    private synchronized Result get(String key) {
+        load();
+        Result result = results.get(key);
+        if (result != null && result.isExpired()) {
+            results.remove(key);
+            return null;
+        }
+        return result;
+    }
+
+    private synchronized void put(String key, Result result) {
+        load();
+        results.put(key, result);
+        save();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                Result result = Result.read(in);
+                if (!result.isExpired()) {
+                    results.put(key, result);
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+            // Nothing persisted yet
+        } catch (IOException e) {
+            logger.warn("Unable to read command result cache file {}, ignore it!", file, e);
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        List<Map.Entry<String, Result>> entries = new ArrayList<>(results.entrySet());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(FILE_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Result> entry : entries) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Unable to write command result cache file {}", file, e);
+        }
+    }
+
+    private static List<String> normalize(String... args) {
+        List<String> normalized = new ArrayList<>(args.length);
+        for (String arg : args) {
+            if (arg != null && !arg.trim().isEmpty()) {
+                normalized.add(arg.trim());
+            }
+        }
+        return normalized;
+    }
+
+    private static class Result {
+
+        private final ExitStatus exitStatus;
+
+        private final byte[] out;
+
+        private final byte[] err;
+
+        private final long expiresAt;
+
+        Result(ExitStatus exitStatus, byte[] out, byte[] err, long expiresAt) {
+            this.exitStatus = exitStatus;
+            this.out = out;
+            this.err = err;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        void write(DataOutputStream stream) throws IOException {
+            stream.writeUTF(exitStatus.name());
+            stream.writeLong(expiresAt);
+            stream.writeInt(out.length);
+            stream.write(out);
+            stream.writeInt(err.length);
+            stream.write(err);
+        }
+
+        static Result read(DataInputStream stream) throws IOException {
+            ExitStatus exitStatus = ExitStatus.valueOf(stream.readUTF());
+            long expiresAt = stream.readLong();
+            byte[] out = readBytes(stream);
+            byte[] err = readBytes(stream);
+            return new Result(exitStatus, out, err, expiresAt);
+        }
+
+        private static byte[] readBytes(DataInputStream stream) throws IOException {
+            byte[] bytes = new byte[stream.readInt()];
+            stream.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream first;
+
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import picocli.CommandLine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Named root {@link CommandLine} trees sharing the same application context, thus a single application (and a single
+ * daemon) can serve several tools.
+ *
+ * Root of an invocation is selected by the client environment variable (see {@link ClientContext}), otherwise default
+ * root is used. When argument selection is enabled, a first argument that is a root name selects the root first, root
+ * names then take precedence over sub-commands of the default root.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CommandRoots {
+
+    private final Map<String, CommandLine> roots;
+
+    private final String defaultName;
+
+    private final String variable;
+
+    private final boolean argumentSelection;
+
+    CommandRoots(Map<String, CommandLine> roots, String defaultName, String variable, boolean argumentSelection) {
+        Assert.isTrue(roots.containsKey(defaultName), "Unknown default root " + defaultName + ", available roots "
+                + roots.keySet());
+        this.roots = Collections.unmodifiableMap(new LinkedHashMap<>(roots));
+        this.defaultName = defaultName;
+        this.variable = variable;
+        this.argumentSelection = argumentSelection;
+    }
+
+    CommandLine getDefault() {
+        return roots.get(defaultName);
+    }
+
+    Map<String, CommandLine> asMap() {
+        return roots;
+    }
+
+    int size() {
+        return roots.size();
+    }
+
+    /**
+     * Selects root of given invocation.
+     * @param args command line arguments
+     * @return selected root and its arguments, first argument is consumed if it was used to select the root
+     * @throws IllegalArgumentException if client environment variable names an unknown root
+     */
+    Selection select(String... args) {
+        Selection selection = select(roots.keySet(), defaultName, variable, argumentSelection, args);
+        return new Selection(selection.name, roots.get(selection.name), selection.args);
+    }
+
+    /**
+     * Selects given root, e.g. for shards executed on the root of the invocation they were split from.
+     * @param name root name
+     * @param args command line arguments
+     * @return given root and its arguments
+     * @throws IllegalArgumentException if root is unknown
+     */
+    Selection selectNamed(String name, String... args) {
+        CommandLine root = roots.get(name);
+        if (root == null) {
+            throw new IllegalArgumentException("Unknown command root '" + name + "', available roots "
+                    + roots.keySet());
+        }
+        return new Selection(name, root, args);
+    }
+
+    /**
+     * Selects root name of given invocation among given names, for callers that do not have command lines yet.
+     * @param names root names
+     * @param defaultName name used when invocation does not select any root
+     * @param variable client environment variable selecting the root, may be {@code null}
+     * @param argumentSelection whether a first argument that is a root name selects the root
+     * @param args command line arguments
+     * @return selected root name and its arguments, without command line
+     * @throws IllegalArgumentException if client environment variable names an unknown root
+     */
+    static Selection select(Set<String> names, String defaultName, String variable, boolean argumentSelection,
+            String... args) {
+        if (argumentSelection && args.length > 0 && names.contains(args[0])) {
+            return new Selection(args[0], null, Arrays.copyOfRange(args, 1, args.length));
+        }
+        String name = StringUtils.hasText(variable) ? ClientContext.current().getEnvironment().get(variable) : null;
+        if (StringUtils.hasText(name)) {
+            if (!names.contains(name)) {
+                throw new IllegalArgumentException("Unknown command root '" + name + "' selected by " + variable
+                        + ", available roots " + names);
+            }
+            return new Selection(name, null, args);
+        }
+        return new Selection(defaultName, null, args);
+    }
+
+    static final class Selection {
+
+        private final String name;
+
+        private final CommandLine root;
+
+        private final String[] args;
+
+        private Selection(String name, CommandLine root, String[] args) {
+            this.name = name;
+            this.root = root;
+            this.args = args;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        CommandLine getRoot() {
+            return root;
+        }
+
+        String[] getArgs() {
+            return args;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.Scope;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code command} scope, beans are bound to a single command invocation: they are created on first use during the
+ * invocation then destroyed once the invocation finished.
+ *
+ * Invocation is bound to the invoking thread only, neither pooled nor newly created threads see it. Tasks executed on
+ * other threads must be wrapped using {@link #wrap(Runnable)} or {@link #wrap(Callable)} to run within the invocation
+ * of the submitting thread.
+ *
+ * @author Thibaud Leprêtre
+ * @see CommandScoped
+ */
+public class CommandScope implements Scope, BeanFactoryPostProcessor {
+
+    public static final String NAME = "command";
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandScope.class);
+
+    private static final ThreadLocal<Invocation> current = new ThreadLocal<>();
+
+    private static final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Wraps given task in order to execute it within the invocation of the calling thread.
+     * @param task task to wrap
+     * @return task bound to current invocation, or given task if there is no current invocation
+     */
+    public static Runnable wrap(Runnable task) {
+        Invocation invocation = current.get();
+        if (invocation == null) {
+            return task;
+        }
+        return () -> {
+            Invocation previous = current.get();
+            current.set(invocation);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps given task in order to execute it within the invocation of the calling thread.
+     * @param task task to wrap
+     * @param <V> task result type
+     * @return task bound to current invocation, or given task if there is no current invocation
+     */
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        Invocation invocation = current.get();
+        if (invocation == null) {
+            return task;
+        }
+        return () -> {
+            Invocation previous = current.get();
+            current.set(invocation);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Starts a new invocation for calling thread, nested in the active invocation if any.
+     * @return started invocation
+     */
+    static Invocation begin() {
+        Invocation invocation = new Invocation(active(current.get()));
+        current.set(invocation);
+        return invocation;
+    }
+
+    /**
+     * Skips invocations that were closed from another thread than the one that started them.
+     */
+    private static Invocation active(Invocation invocation) {
+        while (invocation != null && invocation.closed) {
+            invocation = invocation.previous;
+        }
+        return invocation;
+    }
+
+    private static void restore(Invocation invocation) {
+        if (invocation == null) {
+            current.remove();
+        } else {
+            current.set(invocation);
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        beanFactory.registerScope(NAME, this);
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        Invocation invocation = getInvocation();
+        // Reentrant since bean creation may recursively create other scoped beans
+        synchronized (invocation) {
+            if (invocation.beans == null) {
+                invocation.beans = new HashMap<>();
+            }
+            Object bean = invocation.beans.get(name);
+            if (bean == null) {
+                bean = objectFactory.getObject();
+                invocation.beans.put(name, bean);
+            }
+            return bean;
+        }
+    }
+
+    @Override
+    public Object remove(String name) {
+        Invocation invocation = getInvocation();
+        synchronized (invocation) {
+            if (invocation.callbacks != null) {
+                invocation.callbacks.remove(name);
+            }
+            return invocation.beans == null ? null : invocation.beans.remove(name);
+        }
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        Invocation invocation = getInvocation();
+        synchronized (invocation) {
+            if (invocation.callbacks == null) {
+                invocation.callbacks = new LinkedHashMap<>();
+            }
+            invocation.callbacks.put(name, callback);
+        }
+    }
+
+    @Override
+    public Object resolveContextualObject(String key) {
+        return null;
+    }
+
+    @Override
+    public String getConversationId() {
+        Invocation invocation = current.get();
+        return invocation == null ? null : Long.toString(invocation.id);
+    }
+
+    private static Invocation getInvocation() {
+        Invocation invocation = current.get();
+        if (invocation == null) {
+            throw new IllegalStateException("No command invocation is active for thread "
+                    + Thread.currentThread().getName() + ", consider using CommandScope.wrap() for pooled threads");
+        }
+        if (invocation.closed) {
+            throw new IllegalStateException("Command invocation " + invocation.id + " is already finished");
+        }
+        return invocation;
+    }
+
+    /**
+     * Beans are only allocated on first use, thus invocations of commands that do not use command scoped beans are
+     * almost free.
+     */
+    static final class Invocation implements AutoCloseable {
+
+        private final long id = sequence.incrementAndGet();
+
+        private final Invocation previous;
+
+        private Map<String, Object> beans;
+
+        private Map<String, Runnable> callbacks;
+
+        private volatile boolean closed;
+
+        private Invocation(Invocation previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            List<Runnable> destructions = null;
+            synchronized (this) {
+                closed = true;
+                if (callbacks != null) {
+                    destructions = new ArrayList<>(callbacks.values());
+                }
+                callbacks = null;
+                beans = null;
+            }
+            // Closing thread may not be the starting one, whose binding is then skipped by its next begin()
+            if (current.get() == this) {
+                restore(active(previous));
+            }
+            if (destructions == null) {
+                return;
+            }
+            // Destroy in reverse creation order, dependent beans first
+            for (int i = destructions.size() - 1; i >= 0; i--) {
+                try {
+                    destructions.get(i).run();
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to destroy command scoped bean of invocation {}", id, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a bean in {@link CommandScope command scope}, a new instance is created for every command invocation and
+ * destroyed once the invocation finished.
+ *
+ * Since commands are singletons, scoped beans are injected through a class based proxy by default.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Scope(CommandScope.NAME)
+public @interface CommandScoped {
+
+    @AliasFor(annotation = Scope.class)
+    ScopedProxyMode proxyMode() default ScopedProxyMode.TARGET_CLASS;
+}
@@ -0,0 +1,169 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timed operation of a command invocation, modeled after OpenTelemetry spans (same identifiers format, attributes
+ * and status) thus exporters can map it straight to their own model.
+ *
+ * An invocation produces one root span named {@code picocli} covering parsing and execution, plus one child span per
+ * executed {@link picocli.CommandLine} of the chain named after its command path.
+ *
+ * @author Thibaud Leprêtre
+ * @see CommandSpanExporter
+ */
+public final class CommandSpan {
+
+    /**
+     * Command path, sub-command names separated by a space (main command excluded).
+     */
+    public static final String COMMAND_PATH = "picocli.command.path";
+
+    /**
+     * Invocation arguments separated by a space, values of sensitive options are masked.
+     */
+    public static final String COMMAND_ARGS = "picocli.command.args";
+
+    /**
+     * Root selected for the invocation, only set when several roots are defined.
+     */
+    public static final String COMMAND_ROOT = "picocli.command.root";
+
+    /**
+     * {@link ExitStatus} name.
+     */
+    public static final String EXIT_STATUS = "picocli.exit.status";
+
+    /**
+     * Class name of the exception that ended the span.
+     */
+    public static final String EXCEPTION_TYPE = "exception.type";
+
+    /**
+     * Message of the exception that ended the span.
+     */
+    public static final String EXCEPTION_MESSAGE = "exception.message";
+
+    private final String traceId;
+
+    private final String spanId;
+
+    private final String parentSpanId;
+
+    private final String name;
+
+    private final long startEpochNanos;
+
+    private final long startNanoTime;
+
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+
+    private long duration = -1;
+
+    private Status status = Status.UNSET;
+
+    private CommandSpan(String traceId, String parentSpanId, String name) {
+        this.traceId = traceId;
+        this.spanId = randomId(1);
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.startNanoTime = System.nanoTime();
+    }
+
+    static CommandSpan root(String name) {
+        return new CommandSpan(randomId(2), null, name);
+    }
+
+    CommandSpan child(String name) {
+        return new CommandSpan(traceId, spanId, name);
+    }
+
+    /**
+     * Returns trace identifier, 32 lowercase hexadecimal characters.
+     * @return trace identifier shared by every span of an invocation
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Returns span identifier, 16 lowercase hexadecimal characters.
+     * @return span identifier
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Returns parent span identifier.
+     * @return parent span identifier, {@code null} for root span
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * Returns span duration.
+     * @return duration in nanoseconds, {@code -1} if span is not ended
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public Map<String, String> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void setAttribute(String key, String value) {
+        attributes.put(key, value);
+    }
+
+    void end(ExitStatus exitStatus, Throwable error) {
+        duration = System.nanoTime() - startNanoTime;
+        if (error != null) {
+            status = Status.ERROR;
+            attributes.put(EXCEPTION_TYPE, error.getClass().getName());
+            if (error.getMessage() != null) {
+                attributes.put(EXCEPTION_MESSAGE, error.getMessage());
+            }
+        } else {
+            status = Status.OK;
+            attributes.put(EXIT_STATUS, exitStatus.name());
+        }
+    }
+
+    private static String randomId(int longs) {
+        StringBuilder id = new StringBuilder(longs * 16);
+        for (int i = 0; i < longs; i++) {
+            String value = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            for (int j = value.length(); j < 16; j++) {
+                id.append('0');
+            }
+            id.append(value);
+        }
+        return id.toString();
+    }
+
+    public enum Status {
+        UNSET,
+        OK,
+        ERROR
+    }
+}
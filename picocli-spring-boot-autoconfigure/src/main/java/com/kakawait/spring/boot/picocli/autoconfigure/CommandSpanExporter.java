@@ -0,0 +1,15 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+/**
+ * Receives ended {@link CommandSpan} when tracing ({@code picocli.tracing.enabled}) is enabled, e.g. to forward them
+ * to an OpenTelemetry SDK or any other tracing backend.
+ *
+ * Spans are exported synchronously by the thread that executed the command, slow exporters should buffer.
+ *
+ * @author Thibaud Leprêtre
+ */
+@FunctionalInterface
+public interface CommandSpanExporter {
+
+    void export(CommandSpan span);
+}
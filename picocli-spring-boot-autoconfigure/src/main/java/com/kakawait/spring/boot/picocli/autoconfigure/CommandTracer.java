@@ -0,0 +1,97 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.regex.Pattern;
+
+/**
+ * Creates and exports {@link CommandSpan} of command invocations.
+ *
+ * Arguments are recorded with values of sensitive options masked, an option is sensitive when its name (without
+ * leading dashes) matches configured pattern, both {@code --password secret} and {@code --password=secret} forms are
+ * masked.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandTracer {
+
+    static final String MASK = "****";
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandTracer.class);
+
+    private final CommandSpanExporter exporter;
+
+    private final Pattern sensitiveOptions;
+
+    CommandTracer(CommandSpanExporter exporter, Pattern sensitiveOptions) {
+        this.exporter = exporter;
+        this.sensitiveOptions = sensitiveOptions;
+    }
+
+    CommandSpan start(String... args) {
+        CommandSpan span = CommandSpan.root("picocli");
+        span.setAttribute(CommandSpan.COMMAND_ARGS, sanitize(args));
+        return span;
+    }
+
+    CommandSpan start(CommandSpan parent, String path) {
+        CommandSpan span = parent.child(path.isEmpty() ? "main" : path);
+        span.setAttribute(CommandSpan.COMMAND_PATH, path);
+        span.setAttribute(CommandSpan.COMMAND_ARGS, parent.getAttributes().get(CommandSpan.COMMAND_ARGS));
+        return span;
+    }
+
+    void end(CommandSpan span, ExitStatus exitStatus, Throwable error) {
+        span.end(exitStatus, error);
+        try {
+            exporter.export(span);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to export span {} of trace {}", span.getName(), span.getTraceId(), e);
+        }
+    }
+
+    String sanitize(String... args) {
+        return sanitize(sensitiveOptions, args);
+    }
+
+    /**
+     * Joins given arguments, masking values of options whose name matches given pattern.
+     * @param sensitiveOptions pattern matching sensitive option names, without leading dashes
+     * @param args command line arguments
+     * @return sanitized arguments separated by a space
+     */
+    static String sanitize(Pattern sensitiveOptions, String... args) {
+        StringBuilder sanitized = new StringBuilder();
+        boolean masked = false;
+        for (String arg : args) {
+            if (sanitized.length() > 0) {
+                sanitized.append(' ');
+            }
+            if (masked) {
+                sanitized.append(MASK);
+                masked = false;
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            String option = separator < 0 ? arg : arg.substring(0, separator);
+            if (!option.startsWith("-") || !isSensitive(sensitiveOptions, option)) {
+                sanitized.append(arg);
+            } else if (separator < 0) {
+                sanitized.append(arg);
+                masked = true;
+            } else {
+                sanitized.append(option).append('=').append(MASK);
+            }
+        }
+        return sanitized.toString();
+    }
+
+    private static boolean isSensitive(Pattern sensitiveOptions, String option) {
+        int start = 0;
+        while (start < option.length() && option.charAt(start) == '-') {
+            start++;
+        }
+        return sensitiveOptions.matcher(option.substring(start)).matches();
+    }
+}
@@ -0,0 +1,97 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.FrameOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Worker side of {@link CommandWorkerPool}, executes shards sent by the coordinator through the
+ * {@link PicocliCommandLineRunner} pipeline until the coordinator closes its standard input.
+ *
+ * Worker answers on its standard output: a {@link #READY} marker once started (anything written before, like a
+ * banner, is skipped by the coordinator) then, for each request, output frames followed by an exit frame, frames being
+ * the ones of {@link DaemonProtocol}. Once serving, {@link System#out} writes out of any shard (logs, ...) are sent to
+ * standard error thus they can not corrupt frames.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandWorker {
+
+    static final String WORKER_PROPERTY = "picocli.workers.worker";
+
+    static final byte[] READY = "\u0000picocli-worker-ready\u0000".getBytes(StandardCharsets.US_ASCII);
+
+    static final int OK = DaemonProtocol.OK;
+
+    static final int FAILED = DaemonProtocol.FAILED;
+
+    static final int TERMINATION = DaemonProtocol.TERMINATION;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandWorker.class);
+
+    /**
+     * Serves shards read from standard input until end of input.
+     * @param runner runner executing shards
+     * @throws IOException if coordinator could not be reached
+     */
+    void serve(PicocliCommandLineRunner runner) throws IOException {
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        try {
+            serve(runner, System.in, stdout);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    void serve(PicocliCommandLineRunner runner, InputStream requests, OutputStream responses) throws IOException {
+        CommandDefaults defaults = CommandDefaults.of(runner.getCommandLines());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(requests));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(responses));
+        out.write(READY);
+        out.flush();
+        while (true) {
+            String rootName;
+            try {
+                rootName = in.readUTF();
+            } catch (EOFException e) {
+                logger.debug("Coordinator closed worker input, stopping");
+                return;
+            }
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            defaults.restore();
+            int exitCode = execute(runner, rootName.isEmpty() ? null : rootName, args, out);
+            out.writeByte(DaemonProtocol.EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    private int execute(PicocliCommandLineRunner runner, String rootName, String[] args, DataOutputStream out) {
+        // Shards only get their arguments, standard input is the request channel
+        try (StandardStreams.Redirection ignored = StandardStreams.redirect(new ByteArrayInputStream(new byte[0]),
+                new FrameOutputStream(out, DaemonProtocol.STDOUT), new FrameOutputStream(out, DaemonProtocol.STDERR))) {
+            try {
+                return runner.executeOn(rootName, args) == ExitStatus.TERMINATION ? TERMINATION : OK;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return FAILED;
+            }
+        }
+    }
+}
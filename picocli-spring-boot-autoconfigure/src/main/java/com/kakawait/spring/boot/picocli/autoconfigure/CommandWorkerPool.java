@@ -0,0 +1,312 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import picocli.CommandLine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coordinator side of worker JVMs executing shards of {@link ShardedCommand}.
+ *
+ * Workers are warm instances of the same application running as {@link CommandWorker}, forked on first use and
+ * reused by following invocations (thus for the daemon lifetime in daemon mode) until the application context is
+ * closed. Requests and results go through worker standard input and output.
+ *
+ * @author Thibaud Leprêtre
+ */
+class CommandWorkerPool implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandWorkerPool.class);
+
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private final int size;
+
+    private final WorkerFactory factory;
+
+    private final LinkedBlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+
+    private final List<Worker> workers = new ArrayList<>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    private volatile boolean closed;
+
+    CommandWorkerPool(int size, WorkerFactory factory) {
+        this.size = size;
+        this.factory = factory;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "picocli-worker-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a factory forking JVMs of the current application.
+     * @param jvmArgs worker JVM arguments
+     * @param mainClass application main class, {@code null} to run classpath as an executable jar
+     * @return worker factory
+     */
+    static WorkerFactory forking(List<String> jvmArgs, String mainClass) {
+        return index -> {
+            List<String> args = new ArrayList<>(jvmArgs);
+            args.add("-D" + CommandWorker.WORKER_PROPERTY + "=true");
+            args.add("-Dspring.main.banner-mode=off");
+            Path log = Files.createTempFile("picocli-worker-" + index + "-", ".log");
+            // Deleted once worker is stopped, or on coordinator exit if it never was
+            log.toFile().deleteOnExit();
+            Process process = new ProcessBuilder(JvmProcess.command(args, mainClass))
+                    .redirectError(log.toFile())
+                    .start();
+            logger.debug("Worker {} forked, standard error written to {}", index, log);
+            return new Worker(process.getInputStream(), process.getOutputStream(), () -> {
+                try {
+                    if (!process.waitFor(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        process.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroy();
+                    Thread.currentThread().interrupt();
+                }
+                Files.deleteIfExists(log);
+            });
+        };
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Executes given command on workers, shard by shard.
+     * @param rootName name of the root to execute command from, {@code null} if there is a single root
+     * @param commands result of {@link CommandLine#parse(String...)}
+     * @param index index of the command to execute
+     * @param command sharded command
+     * @param args command line arguments commands were parsed from, parent command options are forwarded to shards
+     * @return merged exit status
+     * @throws InterruptedException if interrupted while waiting for shards
+     */
+    ExitStatus execute(String rootName, List<CommandLine> commands, int index, ShardedCommand command,
+            String... args) throws InterruptedException {
+        List<String> leadingArgs = CommandPaths.leadingArgs(commands.subList(0, index + 1), args);
+        List<String[]> shards = command.shard(size);
+        List<Future<ShardResult>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            List<String> shardArgs = new ArrayList<>(leadingArgs);
+            shardArgs.addAll(Arrays.asList(shards.get(i)));
+            futures.add(executor.submit(() -> execute(shard, shards.get(shard), rootName, shardArgs)));
+        }
+        List<ShardResult> results = new ArrayList<>(shards.size());
+        for (Future<ShardResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Unable to execute shard", e.getCause());
+            }
+        }
+        return command.merge(results);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        executor.shutdownNow();
+        synchronized (workers) {
+            workers.forEach(Worker::close);
+            workers.clear();
+        }
+        idle.clear();
+    }
+
+    private ShardResult execute(int index, String[] shardArgs, String rootName, List<String> args)
+            throws InterruptedException {
+        Worker worker = acquire();
+        if (worker == null) {
+            return new ShardResult(index, shardArgs, null, "", "Unable to start worker, see logs\n");
+        }
+        try {
+            ShardResult result = worker.execute(index, shardArgs, rootName, args);
+            idle.offer(worker);
+            return result;
+        } catch (IOException e) {
+            logger.warn("Worker lost while executing shard {}, it will be replaced", index, e);
+            discard(worker);
+            return new ShardResult(index, shardArgs, null, "", "Worker lost: " + e.getMessage() + "\n");
+        }
+    }
+
+    private Worker acquire() throws InterruptedException {
+        while (true) {
+            Worker worker = idle.poll();
+            if (worker != null) {
+                return worker;
+            }
+            synchronized (workers) {
+                if (closed) {
+                    return null;
+                }
+                if (workers.size() < size) {
+                    try {
+                        worker = factory.fork(workers.size());
+                        workers.add(worker);
+                        return worker;
+                    } catch (IOException e) {
+                        logger.error("Unable to fork worker", e);
+                        return null;
+                    }
+                }
+            }
+            // Poll again from time to time, a lost worker leaves room for a new one
+            worker = idle.poll(100, TimeUnit.MILLISECONDS);
+            if (worker != null) {
+                return worker;
+            }
+        }
+    }
+
+    private void discard(Worker worker) {
+        worker.close();
+        synchronized (workers) {
+            workers.remove(worker);
+        }
+    }
+
+    @FunctionalInterface
+    interface WorkerFactory {
+        Worker fork(int index) throws IOException;
+    }
+
+    /**
+     * Connection to a single worker, used by one shard at a time.
+     */
+    static final class Worker implements Closeable {
+
+        private final DataInputStream responses;
+
+        private final DataOutputStream requests;
+
+        private final Closeable process;
+
+        private boolean ready;
+
+        Worker(InputStream responses, OutputStream requests, Closeable process) {
+            this.responses = new DataInputStream(new BufferedInputStream(responses));
+            this.requests = new DataOutputStream(new BufferedOutputStream(requests));
+            this.process = process;
+        }
+
+        ShardResult execute(int index, String[] shardArgs, String rootName, List<String> args) throws IOException {
+            if (!ready) {
+                awaitReady();
+                ready = true;
+            }
+            // Root is sent apart, a leading root name is only an argument unless argument selection is enabled
+            requests.writeUTF(rootName == null ? "" : rootName);
+            requests.writeInt(args.size());
+            for (String arg : args) {
+                requests.writeUTF(arg);
+            }
+            requests.flush();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int type = responses.read();
+                switch (type) {
+                    case DaemonProtocol.STDOUT:
+                    case DaemonProtocol.STDERR:
+                        OutputStream target = type == DaemonProtocol.STDOUT ? out : err;
+                        for (int length = responses.readInt(); length > 0; ) {
+                            int read = responses.read(buffer, 0, Math.min(length, buffer.length));
+                            if (read < 0) {
+                                throw new EOFException("Worker exited");
+                            }
+                            target.write(buffer, 0, read);
+                            length -= read;
+                        }
+                        break;
+                    case DaemonProtocol.EXIT:
+                        int exitCode = responses.readInt();
+                        ExitStatus exitStatus = exitCode == CommandWorker.OK
+                                ? ExitStatus.OK
+                                : exitCode == CommandWorker.TERMINATION ? ExitStatus.TERMINATION : null;
+                        // Worker encodes output with its default charset, on the same host
+                        return new ShardResult(index, shardArgs, exitStatus,
+                                new String(out.toByteArray(), Charset.defaultCharset()),
+                                new String(err.toByteArray(), Charset.defaultCharset()));
+                    case -1:
+                        throw new EOFException("Worker exited");
+                    default:
+                        throw new IOException("Unexpected worker frame " + type);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Closing standard input stops the worker gracefully
+                requests.close();
+            } catch (IOException e) {
+                logger.debug("Unable to close worker input", e);
+            }
+            try {
+                process.close();
+            } catch (IOException e) {
+                logger.debug("Unable to stop worker", e);
+            }
+        }
+
+        /**
+         * Skips anything written by the worker before it started serving.
+         */
+        private void awaitReady() throws IOException {
+            byte[] marker = CommandWorker.READY;
+            int matched = 0;
+            while (matched < marker.length) {
+                int b = responses.read();
+                if (b < 0) {
+                    throw new EOFException("Worker exited before being ready");
+                }
+                if (b == (marker[matched] & 0xFF)) {
+                    matched++;
+                } else {
+                    // Marker first byte only reappears as its last byte, a mismatch can only restart on it
+                    matched = b == (marker[0] & 0xFF) ? 1 : 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Prints completion script of the whole command line, see {@link CompletionScript}.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Command(name = "completion")
+class CompletionCommand extends PicocliCommand {
+
+    @Parameters(paramLabel = "NAME", description = "name of executable to complete", arity = "1")
+    String executable;
+
+    @Override
+    public void run() {
+        System.out.print(CompletionScript.generate(getRootContext(), executable));
+    }
+}
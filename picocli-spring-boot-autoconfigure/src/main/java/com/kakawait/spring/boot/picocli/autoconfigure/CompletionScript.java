@@ -0,0 +1,103 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Option;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates bash (and zsh through {@code bashcompinit}) completion script of a {@link CommandLine} tree.
+ *
+ * Completion index (sub-commands and options of every command path) is computed once and embedded into the script,
+ * thus completion never starts the application.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class CompletionScript {
+
+    private CompletionScript() {
+    }
+
+    /**
+     * Generates completion script.
+     * @param cli root command line
+     * @param executable name of executable to complete, as typed in the shell
+     * @return completion script content
+     */
+    static String generate(CommandLine cli, String executable) {
+        Map<String, Entry> index = new LinkedHashMap<>();
+        index(cli, "", index);
+        String function = "_" + executable.replaceAll("[^A-Za-z0-9_]", "_");
+
+        StringBuilder script = new StringBuilder();
+        script.append("# ").append(executable).append(" completion, source it or copy it to bash_completion.d\n");
+        script.append("if [ -n \"$ZSH_VERSION\" ]; then\n");
+        script.append("    autoload -U +X bashcompinit && bashcompinit\n");
+        script.append("fi\n\n");
+        appendLookup(script, function + "_commands", index, true);
+        appendLookup(script, function + "_options", index, false);
+        script.append(function).append("() {\n");
+        // Not named path, zsh ties it to PATH even when declared local
+        script.append("    local cur=\"${COMP_WORDS[COMP_CWORD]}\" command_path=\"\" word i\n");
+        script.append("    for ((i = 1; i < COMP_CWORD; i++)); do\n");
+        script.append("        word=\"${COMP_WORDS[i]}\"\n");
+        script.append("        if [[ \" $(").append(function)
+                .append("_commands \"$command_path\") \" == *\" $word \"* ]]; then\n");
+        script.append("            command_path=\"$command_path $word\"\n");
+        script.append("        fi\n");
+        script.append("    done\n");
+        script.append("    if [[ \"$cur\" == -* ]]; then\n");
+        script.append("        COMPREPLY=($(compgen -W \"$(").append(function)
+                .append("_options \"$command_path\")\" -- \"$cur\"))\n");
+        script.append("    else\n");
+        script.append("        COMPREPLY=($(compgen -W \"$(").append(function)
+                .append("_commands \"$command_path\")\" -- \"$cur\"))\n");
+        script.append("    fi\n");
+        script.append("}\n\n");
+        script.append("complete -o default -F ").append(function).append(" ").append(executable).append("\n");
+        return script.toString();
+    }
+
+    private static void index(CommandLine commandLine, String path, Map<String, Entry> index) {
+        Entry entry = new Entry();
+        entry.commands.addAll(commandLine.getSubcommands().keySet());
+        ReflectionUtils.doWithFields(AopUtils.getTargetClass(commandLine.getCommand()), f -> {
+            Option option = f.getAnnotation(Option.class);
+            if (!option.hidden()) {
+                for (String name : option.names()) {
+                    entry.options.add(name);
+                }
+            }
+        }, f -> f.isAnnotationPresent(Option.class));
+        index.put(path, entry);
+        for (Map.Entry<String, CommandLine> subcommand : commandLine.getSubcommands().entrySet()) {
+            index(subcommand.getValue(), path + " " + subcommand.getKey(), index);
+        }
+    }
+
+    private static void appendLookup(StringBuilder script, String function, Map<String, Entry> index,
+            boolean commands) {
+        script.append(function).append("() {\n");
+        script.append("    case \"$1\" in\n");
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            List<String> words = commands ? entry.getValue().commands : entry.getValue().options;
+            if (!words.isEmpty()) {
+                script.append("        \"").append(entry.getKey()).append("\") echo \"")
+                        .append(String.join(" ", words)).append("\" ;;\n");
+            }
+        }
+        script.append("    esac\n");
+        script.append("}\n\n");
+    }
+
+    private static final class Entry {
+        private final List<String> commands = new ArrayList<>();
+
+        private final List<String> options = new ArrayList<>();
+    }
+}
@@ -0,0 +1,130 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Bridges picocli type conversion to a Spring {@link ConversionService} for option and parameter types that picocli
+ * does not convert by itself.
+ *
+ * A single converter is registered per target type, with source and target {@link TypeDescriptor} resolved upfront,
+ * thus converting every element of a multi-valued option only costs the conversion itself (the conversion service
+ * caches its own converter lookup per source and target types).
+ *
+ * @author Thibaud Leprêtre
+ */
+final class ConversionServiceConverters {
+
+    private static final TypeDescriptor STRING = TypeDescriptor.valueOf(String.class);
+
+    /**
+     * Types converted by picocli built-in converters, enums excluded.
+     */
+    private static final Set<Class<?>> BUILT_IN_TYPES = new HashSet<>(Arrays.asList(String.class,
+            StringBuilder.class, CharSequence.class, Byte.class, Boolean.class, Character.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, File.class, URI.class, URL.class, Date.class,
+            Time.class, BigDecimal.class, BigInteger.class, Charset.class, InetAddress.class, Pattern.class,
+            UUID.class));
+
+    private ConversionServiceConverters() {
+    }
+
+    /**
+     * Registers a converter for every option and parameter type of given tree unknown by picocli but convertible
+     * from {@link String} by the conversion service. Like any converter, they are only propagated to already
+     * registered sub-commands.
+     * @param cli root command line
+     * @param conversionService conversion service supplier, only called if there is any unknown type
+     * @return registered types
+     */
+    static Set<Class<?>> register(CommandLine cli, Supplier<ConversionService> conversionService) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(cli, types, Collections.newSetFromMap(new IdentityHashMap<>()));
+        types.removeIf(t -> t.isEnum() || BUILT_IN_TYPES.contains(ClassUtils.resolvePrimitiveIfNecessary(t)));
+        if (types.isEmpty()) {
+            return types;
+        }
+        ConversionService service = conversionService.get();
+        types.removeIf(t -> !service.canConvert(STRING, TypeDescriptor.valueOf(t)));
+        for (Class<?> type : types) {
+            register(cli, type, new Converter(service, TypeDescriptor.valueOf(type)));
+        }
+        return types;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void register(CommandLine cli, Class<?> type, ITypeConverter<?> converter) {
+        cli.registerConverter((Class<Object>) type, (ITypeConverter<Object>) converter);
+    }
+
+    private static void collectTypes(CommandLine commandLine, Set<Class<?>> types, Set<Object> visited) {
+        Object command = commandLine.getCommand();
+        if (!visited.add(command)) {
+            return;
+        }
+        ReflectionUtils.doWithFields(command.getClass(), f -> types.add(getElementType(f)),
+                f -> f.isAnnotationPresent(Option.class) || f.isAnnotationPresent(Parameters.class));
+        for (CommandLine subcommand : commandLine.getSubcommands().values()) {
+            collectTypes(subcommand, types, visited);
+        }
+    }
+
+    /**
+     * Same element type resolution than picocli.
+     */
+    private static Class<?> getElementType(Field field) {
+        if (field.getType().isArray()) {
+            return field.getType().getComponentType();
+        }
+        if (Collection.class.isAssignableFrom(field.getType())) {
+            return field.isAnnotationPresent(Option.class)
+                    ? field.getAnnotation(Option.class).type()
+                    : field.getAnnotation(Parameters.class).type();
+        }
+        return field.getType();
+    }
+
+    private static class Converter implements ITypeConverter<Object> {
+
+        private final ConversionService conversionService;
+
+        private final TypeDescriptor targetType;
+
+        Converter(ConversionService conversionService, TypeDescriptor targetType) {
+            this.conversionService = conversionService;
+            this.targetType = targetType;
+        }
+
+        @Override
+        public Object convert(String value) {
+            return conversionService.convert(value, STRING, targetType);
+        }
+    }
+}
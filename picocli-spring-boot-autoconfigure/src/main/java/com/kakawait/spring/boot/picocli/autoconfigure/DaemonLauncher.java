@@ -0,0 +1,229 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.FrameOutputStream;
+import com.kakawait.spring.boot.picocli.autoconfigure.DaemonProtocol.State;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thin launcher forwarding arguments, environment, working directory and standard streams to a warm
+ * {@link CommandDaemon}, starting the daemon first if none is running for the current classpath.
+ *
+ * Launcher only depends on JDK classes thus it starts without loading Spring, e.g. for a Spring Boot executable jar:
+ *
+ * <pre>
+ * {@code
+ * java -Dloader.main=com.kakawait.spring.boot.picocli.autoconfigure.DaemonLauncher \
+ *      -Dpicocli.daemon.main-class=com.example.Application \
+ *      -cp application.jar org.springframework.boot.loader.PropertiesLauncher greeting world
+ * }
+ * </pre>
+ *
+ * Supported system properties:
+ * <ul>
+ * <li>{@code picocli.daemon.main-class}: application main class, classpath is run as executable jar if missing</li>
+ * <li>{@code picocli.daemon.state-file}: daemon state file, default to a file named after main class (or jar) in
+ * {@code ~/.picocli/daemon}</li>
+ * <li>{@code picocli.daemon.jvm-args}: space separated daemon JVM arguments</li>
+ * <li>{@code picocli.daemon.idle-timeout}: daemon idle timeout in seconds</li>
+ * </ul>
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class DaemonLauncher {
+
+    static final String STATE_FILE_PROPERTY = "picocli.daemon.state-file";
+
+    private static final long START_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
+    private final Path stateFile;
+
+    private final String fingerprint;
+
+    private final InputStream in;
+
+    private final PrintStream out;
+
+    private final PrintStream err;
+
+    DaemonLauncher(Path stateFile, String fingerprint, InputStream in, PrintStream out, PrintStream err) {
+        this.stateFile = stateFile;
+        this.fingerprint = fingerprint;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mainClass = System.getProperty("picocli.daemon.main-class");
+        String classpath = System.getProperty("java.class.path");
+        String name = mainClass == null ? Paths.get(classpath).getFileName().toString() : mainClass;
+        Path stateFile = System.getProperty(STATE_FILE_PROPERTY) == null
+                ? Paths.get(System.getProperty("user.home"), ".picocli", "daemon", name + ".properties")
+                : Paths.get(System.getProperty(STATE_FILE_PROPERTY));
+        DaemonLauncher launcher = new DaemonLauncher(stateFile, DaemonProtocol.fingerprint(classpath), System.in,
+                System.out, System.err);
+        System.exit(launcher.launch(mainClass, args));
+    }
+
+    /**
+     * Executes given arguments on running daemon, starting a new daemon if needed.
+     * @param mainClass application main class, {@code null} to run classpath as an executable jar
+     * @param args command line arguments
+     * @return exit code
+     * @throws IOException if daemon could not be started or reached
+     * @throws InterruptedException if interrupted while waiting for daemon
+     */
+    int launch(String mainClass, String... args) throws IOException, InterruptedException {
+        State state = State.read(stateFile);
+        if (state != null) {
+            Integer exitCode = send(state, args);
+            if (exitCode != null) {
+                return exitCode;
+            }
+        }
+        state = start(mainClass, state);
+        Integer exitCode = send(state, args);
+        if (exitCode == null) {
+            throw new IOException("Unable to reach daemon described by " + stateFile);
+        }
+        return exitCode;
+    }
+
+    /**
+     * Sends invocation to daemon described by given state.
+     * @param state daemon state
+     * @param args command line arguments
+     * @return exit code or {@code null} if daemon is not running or stale
+     * @throws IOException if connection to daemon was lost during invocation
+     */
+    Integer send(State state, String... args) throws IOException {
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), state.port);
+        } catch (IOException e) {
+            return null;
+        }
+        try (Socket s = socket) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            request.writeInt(DaemonProtocol.VERSION);
+            request.writeUTF(state.token);
+            request.writeUTF(fingerprint);
+            DaemonProtocol.writeString(request, Paths.get("").toAbsolutePath().toString());
+            Map<String, String> environment = System.getenv();
+            request.writeInt(environment.size());
+            for (Map.Entry<String, String> entry : environment.entrySet()) {
+                DaemonProtocol.writeString(request, entry.getKey());
+                DaemonProtocol.writeString(request, entry.getValue());
+            }
+            request.writeInt(args.length);
+            for (String arg : args) {
+                DaemonProtocol.writeString(request, arg);
+            }
+            request.flush();
+            startStandardInputPump(request);
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int type = response.read();
+                if (type < 0) {
+                    throw new EOFException("Connection to daemon lost");
+                }
+                switch ((byte) type) {
+                    case DaemonProtocol.STDOUT:
+                    case DaemonProtocol.STDERR:
+                        PrintStream target = type == DaemonProtocol.STDOUT ? out : err;
+                        for (int length = response.readInt(); length > 0; ) {
+                            int read = response.read(buffer, 0, Math.min(length, buffer.length));
+                            if (read < 0) {
+                                throw new EOFException("Connection to daemon lost");
+                            }
+                            target.write(buffer, 0, read);
+                            length -= read;
+                        }
+                        target.flush();
+                        break;
+                    case DaemonProtocol.EXIT:
+                        return response.readInt();
+                    case DaemonProtocol.STALE:
+                        return null;
+                    default:
+                        throw new IOException("Unexpected daemon frame " + type);
+                }
+            }
+        }
+    }
+
+    private void startStandardInputPump(DataOutputStream request) {
+        Thread pump = new Thread(() -> {
+            try (OutputStream stdin = new FrameOutputStream(request, DaemonProtocol.STDIN)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    stdin.write(buffer, 0, read);
+                    stdin.flush();
+                }
+                DaemonProtocol.writeFrame(request, DaemonProtocol.STDIN, buffer, 0, 0);
+                request.flush();
+            } catch (IOException e) {
+                // Daemon closed connection, remaining input is not needed
+            }
+        }, "picocli-daemon-stdin");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    private State start(String mainClass, State previous) throws IOException, InterruptedException {
+        Files.deleteIfExists(stateFile);
+        Files.createDirectories(stateFile.toAbsolutePath().getParent());
+        List<String> jvmArgs = new ArrayList<>();
+        String configuredJvmArgs = System.getProperty("picocli.daemon.jvm-args");
+        if (configuredJvmArgs != null && !configuredJvmArgs.trim().isEmpty()) {
+            jvmArgs.addAll(Arrays.asList(configuredJvmArgs.trim().split("\\s+")));
+        }
+        jvmArgs.add("-D" + STATE_FILE_PROPERTY + "=" + stateFile.toAbsolutePath());
+        String idleTimeout = System.getProperty("picocli.daemon.idle-timeout");
+        if (idleTimeout != null) {
+            jvmArgs.add("-Dpicocli.daemon.idle-timeout=" + idleTimeout);
+        }
+        Path log = Paths.get(stateFile.toAbsolutePath() + ".log");
+        Process process = new ProcessBuilder(JvmProcess.command(jvmArgs, mainClass))
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        process.getOutputStream().close();
+
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            State state = State.read(stateFile);
+            if (state != null && (previous == null || !Objects.equals(previous.token, state.token))) {
+                return state;
+            }
+            if (!process.isAlive()) {
+                throw new IOException("Daemon exited with code " + process.exitValue() + ", see " + log);
+            }
+            Thread.sleep(50);
+        }
+        throw new IOException("Daemon did not start within " + START_TIMEOUT + "ms, see " + log);
+    }
+}
@@ -0,0 +1,248 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Wire protocol and state shared by {@link DaemonLauncher} (client) and {@link CommandDaemon} (server).
+ *
+ * Client sends a request ({@link #VERSION}, token, classpath fingerprint, working directory, environment and
+ * arguments) then standard input frames. Server answers by standard output and error frames followed by an exit
+ * frame ({@link #OK}, {@link #FAILED} or {@link #TERMINATION}), or by a stale frame if client classpath differs from
+ * its own. A frame is a type byte, a length and content. Strings of unbounded size (working directory, environment
+ * and arguments) are written like frame content, a length then UTF-8 bytes.
+ *
+ * Must only depend on JDK classes since it is used by the launcher before any framework is loaded.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class DaemonProtocol {
+
+    static final int VERSION = 2;
+
+    static final int OK = 0;
+
+    static final int FAILED = 1;
+
+    static final int TERMINATION = 2;
+
+    static final byte STDIN = 'I';
+
+    static final byte STDOUT = 'O';
+
+    static final byte STDERR = 'E';
+
+    static final byte EXIT = 'X';
+
+    static final byte STALE = 'S';
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Computes fingerprint of given classpath, any added, removed or modified entry changes the fingerprint.
+     * @param classpath classpath entries separated by {@link File#pathSeparator}
+     * @return hexadecimal fingerprint
+     */
+    static String fingerprint(String classpath) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String entry : classpath.split(File.pathSeparator)) {
+            Path path = Paths.get(entry).toAbsolutePath();
+            digest.update(path.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(stamp(path).getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(String.format("%02x", b));
+        }
+        return fingerprint.toString();
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, byte[] b, int off, int len) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static String stamp(Path path) {
+        File file = path.toFile();
+        if (!file.isDirectory()) {
+            return file.length() + ":" + file.lastModified();
+        }
+        // Directories last modified date does not reflect nested changes (exploded classes)
+        try (Stream<Path> files = Files.walk(path)) {
+            return Long.toString(files.mapToLong(p -> p.toFile().lastModified()).max().orElse(0) ^ file.length());
+        } catch (IOException e) {
+            return Long.toString(file.lastModified());
+        }
+    }
+
+    /**
+     * Daemon state, written by server once listening.
+     */
+    static final class State {
+
+        final int port;
+
+        final String token;
+
+        final String fingerprint;
+
+        State(int port, String token, String fingerprint) {
+            this.port = port;
+            this.token = token;
+            this.fingerprint = fingerprint;
+        }
+
+        static State read(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            try {
+                return new State(Integer.parseInt(properties.getProperty("port")), properties.getProperty("token"),
+                        properties.getProperty("fingerprint"));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        void write(Path file) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("port", Integer.toString(port));
+            properties.setProperty("token", token);
+            properties.setProperty("fingerprint", fingerprint);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), "daemon", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                properties.store(out, null);
+            }
+            // Client must never read a partially written state
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Writes everything as frames of given type.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                writeFrame(out, type, b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Reads content of {@link #STDIN} frames, an empty frame means end of input.
+     */
+    static final class FrameInputStream extends InputStream {
+
+        private final DataInputStream in;
+
+        private int remaining;
+
+        private boolean ended;
+
+        FrameInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (ended || in.read() != STDIN) {
+                    ended = true;
+                    return -1;
+                }
+                remaining = in.readInt();
+                if (remaining == 0) {
+                    ended = true;
+                    return -1;
+                }
+            }
+            int read = in.read(b, off, Math.min(len, remaining));
+            if (read < 0) {
+                ended = true;
+                return -1;
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // Standard input lifecycle is owned by the daemon
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.aop.support.AopUtils;
+import picocli.CommandLine;
+
+import java.util.List;
+
+/**
+ * Java Flight Recorder events, only loaded through {@link CommandEvents} when {@code jdk.jfr} is available.
+ *
+ * Events are not allocated until a recording was started at least once, then only while they are enabled. Event
+ * fields (command path, ...) are only computed for events that will be committed.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class FlightRecorderEvents {
+
+    private static final String CATEGORY = "Picocli";
+
+    private FlightRecorderEvents() {
+    }
+
+    static Object beginParse() {
+        return begin(FlightRecorder.isInitialized() ? new ParseEvent() : null);
+    }
+
+    static void endParse(Object handle, CommandLine root, List<CommandLine> commands, int arguments) {
+        ParseEvent event = (ParseEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.root = AopUtils.getTargetClass(root.getCommand());
+            event.path = commands == null ? null : CommandPaths.of(commands);
+            event.arguments = arguments;
+            event.failed = commands == null;
+            event.commit();
+        }
+    }
+
+    static Object beginHelpResolution() {
+        return begin(FlightRecorder.isInitialized() ? new HelpResolutionEvent() : null);
+    }
+
+    static void endHelpResolution(Object handle, List<CommandLine> commands, boolean helpRequested) {
+        HelpResolutionEvent event = (HelpResolutionEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = CommandPaths.of(commands);
+            event.helpRequested = helpRequested;
+            event.commit();
+        }
+    }
+
+    static Object beginCommandExecution() {
+        return begin(FlightRecorder.isInitialized() ? new CommandExecutionEvent() : null);
+    }
+
+    static void endCommandExecution(Object handle, List<CommandLine> commands, int index, Object result,
+            Throwable error) {
+        CommandExecutionEvent event = (CommandExecutionEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = CommandPaths.of(commands.subList(0, index + 1));
+            event.commandClass = AopUtils.getTargetClass(commands.get(index).getCommand());
+            event.exitStatus = error == null
+                    ? (result == ExitStatus.TERMINATION ? ExitStatus.TERMINATION : ExitStatus.OK).name()
+                    : null;
+            event.exception = error == null ? null : error.getClass().getName();
+            event.commit();
+        }
+    }
+
+    static Object beginTreeBuild() {
+        return begin(FlightRecorder.isInitialized() ? new TreeBuildEvent() : null);
+    }
+
+    static void endTreeBuild(Object handle, String root, CommandLine cli) {
+        TreeBuildEvent event = (TreeBuildEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.root = root;
+            event.commands = count(cli);
+            event.commit();
+        }
+    }
+
+    private static Event begin(Event event) {
+        if (event == null || !event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    private static int count(CommandLine commandLine) {
+        int count = 1;
+        for (CommandLine subcommand : commandLine.getSubcommands().values()) {
+            count += count(subcommand);
+        }
+        return count;
+    }
+
+    @Name("com.kakawait.picocli.PicocliParse")
+    @Label("Picocli Parse")
+    @Description("Parsing of command line arguments, parse plan cache included")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class ParseEvent extends Event {
+
+        @Label("Root Command")
+        Class<?> root;
+
+        @Label("Command Path")
+        String path;
+
+        @Label("Arguments")
+        int arguments;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("com.kakawait.picocli.PicocliHelpResolution")
+    @Label("Picocli Help Resolution")
+    @Description("Lookup of help options of parsed commands")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class HelpResolutionEvent extends Event {
+
+        @Label("Command Path")
+        String path;
+
+        @Label("Help Requested")
+        boolean helpRequested;
+    }
+
+    @Name("com.kakawait.picocli.PicocliCommandExecution")
+    @Label("Picocli Command Execution")
+    @Description("Execution of a single command of the parsed chain")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class CommandExecutionEvent extends Event {
+
+        @Label("Command Path")
+        String path;
+
+        @Label("Command Class")
+        Class<?> commandClass;
+
+        @Label("Exit Status")
+        String exitStatus;
+
+        @Label("Exception")
+        String exception;
+    }
+
+    @Name("com.kakawait.picocli.PicocliTreeBuild")
+    @Label("Picocli Tree Build")
+    @Description("Build of a root command line tree from command beans")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class TreeBuildEvent extends Event {
+
+        @Label("Root")
+        String root;
+
+        @Label("Commands")
+        int commands;
+    }
+}
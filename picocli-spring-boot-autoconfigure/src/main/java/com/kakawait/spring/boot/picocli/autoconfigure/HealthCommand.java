@@ -0,0 +1,182 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthAggregator;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.OrderedHealthAggregator;
+import org.springframework.boot.actuate.health.Status;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help.Ansi;
+import picocli.CommandLine.Parameters;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates every {@link HealthIndicator} bean concurrently, prints aggregated status followed by each indicator
+ * health, and terminates ({@link ExitStatus#TERMINATION}) unless aggregated status is {@link Status#UP}. Application
+ * exit code is then {@link ExitCode#UNHEALTHY}, see {@link ExitCode}.
+ *
+ * Indicators are named like actuator health endpoint does (bean name without {@code HealthIndicator} suffix), each one
+ * is given {@code timeout} milliseconds and is down once exceeded. Indicators can be selected by that name or its
+ * hyphenated form, e.g. {@code diskSpace} or {@code disk-space}.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Command(name = "health")
+class HealthCommand extends HelpAwarePicocliCommand {
+
+    static final String HEALTH_INDICATOR_CLASS = "org.springframework.boot.actuate.health.HealthIndicator";
+
+    private static final String SUFFIX = "HealthIndicator";
+
+    @Parameters(paramLabel = "NAME", description = "names of indicators to evaluate, every indicator by default")
+    String[] names = {};
+
+    private final ListableBeanFactory beanFactory;
+
+    private final long timeout;
+
+    private final ExitCode exitCode;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    HealthCommand(ListableBeanFactory beanFactory, long timeout, ExitCode exitCode) {
+        this.beanFactory = beanFactory;
+        this.timeout = timeout;
+        this.exitCode = exitCode;
+    }
+
+    @Override
+    public ExitStatus call() throws Exception {
+        Map<String, HealthIndicator> indicators = getIndicators();
+        if (names.length > 0) {
+            Set<String> selected = new HashSet<>();
+            for (String name : names) {
+                String indicatorName = resolveName(name, indicators.keySet());
+                if (indicatorName == null) {
+                    System.err.println(String.format("Unknown health indicator '%s', expected one of %s", name,
+                            indicators.keySet()));
+                    if (getContext() != null) {
+                        getContext().usage(System.err, Ansi.AUTO);
+                    }
+                    return ExitStatus.TERMINATION;
+                }
+                selected.add(indicatorName);
+            }
+            indicators.keySet().retainAll(selected);
+        }
+        Map<String, Health> healths = evaluate(indicators);
+        Health health = getAggregator().aggregate(healths);
+        System.out.println(health.getStatus());
+        healths.forEach((name, h) -> System.out.println("  " + name + ": " + h));
+        if (!Status.UP.equals(health.getStatus())) {
+            exitCode.exitCode = ExitCode.UNHEALTHY;
+            return ExitStatus.TERMINATION;
+        }
+        exitCode.exitCode = 0;
+        return ExitStatus.OK;
+    }
+
+    private Map<String, Health> evaluate(Map<String, HealthIndicator> indicators) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "picocli-health-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return evaluate(indicators, executor);
+        } finally {
+            // Interrupts indicators that timed out
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<String, Health> evaluate(Map<String, HealthIndicator> indicators, ExecutorService executor)
+            throws InterruptedException {
+        Map<String, Future<Health>> futures = new LinkedHashMap<>();
+        indicators.forEach((name, indicator) -> futures.put(name, executor.submit(indicator::health)));
+        // Indicators run concurrently, thus a single deadline gives each of them the whole timeout
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Map<String, Health> healths = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Health>> entry : futures.entrySet()) {
+            Future<Health> future = entry.getValue();
+            Health health;
+            try {
+                health = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                health = Health.down().withDetail("error", "Timed out after " + timeout + "ms").build();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                health = Health.down().withDetail("error", cause.getClass().getName() + ": " + cause.getMessage())
+                        .build();
+            }
+            healths.put(entry.getKey(), health);
+        }
+        return healths;
+    }
+
+    private Map<String, HealthIndicator> getIndicators() {
+        Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+        beanFactory.getBeansOfType(HealthIndicator.class).forEach((name, indicator) -> {
+            boolean suffixed = name.length() > SUFFIX.length() && name.endsWith(SUFFIX);
+            indicators.put(suffixed ? name.substring(0, name.length() - SUFFIX.length()) : name, indicator);
+        });
+        return indicators;
+    }
+
+    /**
+     * Returns indicator designated by given name or its hyphenated form ({@code disk-space} for {@code diskSpace}).
+     * @return indicator name, {@code null} if none
+     */
+    private static String resolveName(String name, Set<String> indicatorNames) {
+        if (indicatorNames.contains(name)) {
+            return name;
+        }
+        for (String indicatorName : indicatorNames) {
+            if (name.replace("-", "").equalsIgnoreCase(indicatorName)) {
+                return indicatorName;
+            }
+        }
+        return null;
+    }
+
+    private HealthAggregator getAggregator() {
+        Map<String, HealthAggregator> aggregators = beanFactory.getBeansOfType(HealthAggregator.class);
+        return aggregators.isEmpty() ? new OrderedHealthAggregator() : aggregators.values().iterator().next();
+    }
+
+    /**
+     * Exit code of the last health evaluation, collected by {@code SpringApplication.exit} as any
+     * {@link ExitCodeGenerator} bean.
+     *
+     * Only health evaluation sets it, thus help and usage errors keep exit code {@code 0}.
+     */
+    static class ExitCode implements ExitCodeGenerator {
+
+        /**
+         * Aggregated status was not {@link Status#UP}, distinct from daemon exit codes ({@code 1} when a command
+         * failed, {@code 2} when execution was stopped).
+         */
+        static final int UNHEALTHY = 3;
+
+        private volatile int exitCode;
+
+        @Override
+        public int getExitCode() {
+            return exitCode;
+        }
+    }
+}
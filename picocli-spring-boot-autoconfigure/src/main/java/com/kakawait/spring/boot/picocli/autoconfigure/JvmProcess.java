@@ -0,0 +1,80 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers to start a JVM running the same application as the current one.
+ *
+ * Must only depend on JDK classes since it is used by the launcher before any framework is loaded.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class JvmProcess {
+
+    private static final String PROPERTIES_LAUNCHER = "org.springframework.boot.loader.PropertiesLauncher";
+
+    private JvmProcess() {
+    }
+
+    /**
+     * Builds the command starting a JVM with current {@code java.home} and {@code java.class.path}.
+     * @param jvmArgs JVM arguments (system properties, memory settings, ...)
+     * @param mainClass main class to run, {@code null} to run classpath as an executable jar
+     * @param args application arguments
+     * @return process command
+     */
+    static List<String> command(List<String> jvmArgs, String mainClass, String... args) {
+        String classpath = System.getProperty("java.class.path");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        if (mainClass == null) {
+            if (classpath.contains(File.pathSeparator)) {
+                throw new IllegalStateException("Main class is required when classpath is not a single jar");
+            }
+            command.add("-jar");
+            command.add(classpath);
+        } else if (isExecutableArchive(classpath)) {
+            // Application classes are nested in the archive, only reachable through Spring Boot loader
+            command.add("-Dloader.main=" + mainClass);
+            command.add("-cp");
+            command.add(classpath);
+            command.add(PROPERTIES_LAUNCHER);
+        } else {
+            command.add("-cp");
+            command.add(classpath);
+            command.add(mainClass);
+        }
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * Returns main class of the current JVM, from {@code sun.java.command} system property.
+     * @return main class, {@code null} if current JVM runs an executable jar or main class is unknown
+     */
+    static String mainClass() {
+        String command = System.getProperty("sun.java.command");
+        if (command == null || command.trim().isEmpty()) {
+            return null;
+        }
+        String main = command.trim().split("\\s+")[0];
+        return main.endsWith(".jar") ? null : main;
+    }
+
+    private static boolean isExecutableArchive(String classpath) {
+        if (classpath.contains(File.pathSeparator)) {
+            return false;
+        }
+        try {
+            Class.forName(PROPERTIES_LAUNCHER, false, ClassLoader.getSystemClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
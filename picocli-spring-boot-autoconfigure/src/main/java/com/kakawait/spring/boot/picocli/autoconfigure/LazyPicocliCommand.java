@@ -0,0 +1,89 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.Assert;
+import picocli.CommandLine.Command;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Command whose target is only resolved when command is invoked, thus expensive work (bean creation, remote calls,
+ * health evaluation, ...) is kept out of {@code picocliCommandLine} construction.
+ *
+ * Resolved target must be a {@link PicocliCommand}, {@link Callable} or {@link Runnable}, targets of any other type are
+ * rejected on registration. Target is resolved again on every invocation.
+ *
+ * Since target is unknown while parsing, lazy command does not support any option or parameter.
+ *
+ * @author Thibaud Leprêtre
+ */
+@Command
+public final class LazyPicocliCommand extends PicocliCommand {
+
+    private final Supplier<?> target;
+
+    private LazyPicocliCommand(Supplier<?> target) {
+        this.target = target;
+    }
+
+    /**
+     * Creates a command backed by a {@link Supplier}.
+     * @param targetType type of supplied targets, must be {@link Runnable} or {@link Callable}
+     * @param supplier supplier that will be called on every invocation
+     * @param <T> target type
+     * @return lazy command
+     * @throws IllegalArgumentException if target type is neither {@link Runnable} nor {@link Callable}
+     */
+    public static <T> LazyPicocliCommand of(Class<T> targetType, Supplier<? extends T> supplier) {
+        Assert.notNull(targetType, "Target type must not be null");
+        Assert.notNull(supplier, "Supplier must not be null");
+        assertExecutable(targetType, "Lazy command target type " + targetType.getName());
+        return new LazyPicocliCommand(supplier);
+    }
+
+    /**
+     * Creates a command backed by a bean, bean is only looked up (and thus created for lazy beans) on invocation.
+     * @param beanFactory bean factory used to lookup the bean
+     * @param beanName name of the bean
+     * @return lazy command
+     * @throws IllegalArgumentException if bean type is neither {@link Runnable} nor {@link Callable}
+     */
+    public static LazyPicocliCommand of(BeanFactory beanFactory, String beanName) {
+        Assert.notNull(beanFactory, "BeanFactory must not be null");
+        Assert.hasText(beanName, "Bean name must not be empty");
+        // Type is predicted from bean definition, without creating the bean
+        Class<?> beanType = beanFactory.getType(beanName);
+        if (beanType != null) {
+            assertExecutable(beanType, "Lazy command bean '" + beanName + "' of type " + beanType.getName());
+        }
+        return new LazyPicocliCommand(() -> beanFactory.getBean(beanName));
+    }
+
+    private static void assertExecutable(Class<?> type, String description) {
+        if (!Runnable.class.isAssignableFrom(type) && !Callable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(description + " must implement Runnable or Callable");
+        }
+    }
+
+    @Override
+    public ExitStatus call() throws Exception {
+        Object resolved = target.get();
+        Object result = null;
+        if (resolved instanceof PicocliCommand) {
+            PicocliCommand picocliCommand = (PicocliCommand) resolved;
+            picocliCommand.setContext(getContext());
+            picocliCommand.setRootContext(getRootContext());
+            picocliCommand.setParsedCommands(getParsedCommands());
+            result = picocliCommand.call();
+        } else if (resolved instanceof Runnable) {
+            ((Runnable) resolved).run();
+        } else if (resolved instanceof Callable) {
+            result = ((Callable) resolved).call();
+        } else {
+            // Bean type could not be predicted on registration
+            throw new IllegalStateException("Lazy command target " + resolved + " must implement Runnable or Callable");
+        }
+        return result instanceof ExitStatus ? (ExitStatus) result : ExitStatus.OK;
+    }
+}
@@ -0,0 +1,23 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default {@link CommandSpanExporter}, logs every span at {@code INFO} level.
+ *
+ * @author Thibaud Leprêtre
+ */
+public class LoggingCommandSpanExporter implements CommandSpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingCommandSpanExporter.class);
+
+    @Override
+    public void export(CommandSpan span) {
+        logger.info("Span '{}' trace={} span={} parent={} duration={}ms status={} attributes={}",
+                span.getName(), span.getTraceId(), span.getSpanId(), span.getParentSpanId(),
+                TimeUnit.NANOSECONDS.toMillis(span.getDuration()), span.getStatus(), span.getAttributes());
+    }
+}
@@ -0,0 +1,210 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoizes parse plans of argument vectors in order to skip tokenization, sub-commands lookup and type conversion on
+ * repeated identical invocations.
+ *
+ * A plan is the resolved chain of {@link CommandLine} plus typed values of every {@link Option} and
+ * {@link Parameters} fields once parsed. On hit values are directly applied to command instances. Plans are keyed by
+ * root, client working directory and arguments, kept in a bounded least recently used map and dropped as soon as the
+ * command line tree they were computed from changed.
+ *
+ * @author Thibaud Leprêtre
+ */
+class ParsePlanCache {
+
+    private static final Field[] NO_FIELDS = new Field[0];
+
+    private final Map<Class<?>, Field[]> fieldsCache = new ConcurrentHashMap<>();
+
+    private final Map<List<Object>, Plan> plans;
+
+    ParsePlanCache(int maxSize) {
+        this.plans = new LinkedHashMap<List<Object>, Plan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Plan> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Same contract as {@link CommandLine#parse(String...)} but using memoized plan when available.
+     * @param cli root command line
+     * @param args command line arguments
+     * @return parsed commands
+     */
+    List<CommandLine> parse(CommandLine cli, String... args) {
+        // Same arguments may be parsed by several roots (see CommandRoots), and converters may resolve relative paths
+        // against working directory of the client (see ArgumentFile), thus of the daemon client
+        List<Object> key = new ArrayList<>(args.length + 2);
+        key.add(cli);
+        key.add(ClientContext.current().getWorkingDirectory());
+        Collections.addAll(key, args);
+        Plan plan = get(key);
+        if (plan != null && plan.isValid(cli)) {
+            return plan.apply();
+        }
+        List<CommandLine> commands = cli.parse(args);
+        plan = createPlan(commands);
+        if (plan != null) {
+            put(key, plan);
+        }
+        return commands;
+    }
+
+    synchronized void clear() {
+        plans.clear();
+    }
+
+    synchronized int size() {
+        return plans.size();
+    }
+
+    private synchronized Plan get(List<Object> key) {
+        return plans.get(key);
+    }
+
+    private synchronized void put(List<Object> key, Plan plan) {
+        plans.put(key, plan);
+    }
+
+    private Plan createPlan(List<CommandLine> commands) {
+        if (commands.isEmpty()) {
+            return null;
+        }
+        List<String> names = CommandPaths.names(commands);
+        Step[] steps = new Step[commands.size()];
+        for (int i = 0; i < commands.size(); i++) {
+            CommandLine commandLine = commands.get(i);
+            // Remaining unmatched arguments are part of parsing result but could not be replayed
+            if (commandLine.isUnmatchedArgumentsAllowed() && !commandLine.getUnmatchedArguments().isEmpty()) {
+                return null;
+            }
+            Object command = commandLine.getCommand();
+            Field[] fields = getFields(command.getClass());
+            Object[] values = new Object[fields.length];
+            for (int j = 0; j < fields.length; j++) {
+                values[j] = copy(ReflectionUtils.getField(fields[j], command));
+            }
+            steps[i] = new Step(commandLine, i == 0 ? null : names.get(i - 1), fields, values);
+        }
+        return new Plan(steps, Collections.unmodifiableList(new ArrayList<>(commands)));
+    }
+
+    private Field[] getFields(Class<?> clazz) {
+        return fieldsCache.computeIfAbsent(clazz, c -> {
+            List<Field> fields = new ArrayList<>();
+            ReflectionUtils.doWithFields(c, f -> {
+                ReflectionUtils.makeAccessible(f);
+                fields.add(f);
+            }, f -> f.isAnnotationPresent(Option.class) || f.isAnnotationPresent(Parameters.class));
+            return fields.isEmpty() ? NO_FIELDS : fields.toArray(new Field[fields.size()]);
+        });
+    }
+
+    /**
+     * Copies mutable containers, thus a command modifying its injected values will not alter memoized plan.
+     */
+    @SuppressWarnings("unchecked")
+    static Object copy(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        if (value instanceof SortedSet) {
+            return new TreeSet<>((SortedSet<Object>) value);
+        }
+        if (value instanceof Set) {
+            return new LinkedHashSet<>((Set<Object>) value);
+        }
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<Object>) value);
+        }
+        if (value instanceof SortedMap) {
+            return new TreeMap<>((SortedMap<Object, Object>) value);
+        }
+        if (value instanceof Map) {
+            return new LinkedHashMap<>((Map<Object, Object>) value);
+        }
+        return value;
+    }
+
+    private static class Plan {
+
+        private final Step[] steps;
+
+        private final List<CommandLine> commands;
+
+        Plan(Step[] steps, List<CommandLine> commands) {
+            this.steps = steps;
+            this.commands = commands;
+        }
+
+        boolean isValid(CommandLine cli) {
+            if (steps[0].commandLine != cli) {
+                return false;
+            }
+            for (int i = 1; i < steps.length; i++) {
+                if (steps[i - 1].commandLine.getSubcommands().get(steps[i].name) != steps[i].commandLine) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<CommandLine> apply() {
+            for (Step step : steps) {
+                Object command = step.commandLine.getCommand();
+                for (int i = 0; i < step.fields.length; i++) {
+                    ReflectionUtils.setField(step.fields[i], command, copy(step.values[i]));
+                }
+            }
+            return commands;
+        }
+    }
+
+    private static class Step {
+
+        private final CommandLine commandLine;
+
+        private final String name;
+
+        private final Field[] fields;
+
+        private final Object[] values;
+
+        Step(CommandLine commandLine, String name, Field[] fields, Object[] values) {
+            this.commandLine = commandLine;
+            this.name = name;
+            this.fields = fields;
+            this.values = values;
+        }
+    }
+}
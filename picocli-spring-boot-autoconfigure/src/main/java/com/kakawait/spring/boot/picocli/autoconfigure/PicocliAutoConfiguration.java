@@ -3,26 +3,38 @@ package com.kakawait.spring.boot.picocli.autoconfigure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionMessage;
 import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ConfigurationCondition;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
 import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
 import picocli.CommandLine;
 
 import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -30,6 +42,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static picocli.CommandLine.Command;
 
@@ -38,14 +54,146 @@ import static picocli.CommandLine.Command;
  */
 @Configuration
 @ConditionalOnClass(CommandLine.class)
+@EnableConfigurationProperties(PicocliProperties.class)
 @Import(PicocliAutoConfiguration.CommandlineConfiguration.class)
 class PicocliAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean(PicocliCommandLineRunner.class)
     @ConditionalOnBean(CommandLine.class)
-    CommandLineRunner picocliCommandLineRunner(CommandLine cli) {
-        return new PicocliCommandLineRunner(cli);
+    CommandLineRunner picocliCommandLineRunner(CommandLine cli, PicocliProperties properties, BeanFactory beanFactory,
+            ObjectProvider<CommandResultCache> resultCache, ObjectProvider<ParsePlanCache> parsePlanCache,
+            ObjectProvider<CommandDaemon> daemon, ObjectProvider<CommandRoots> roots,
+            ObjectProvider<CommandTracer> tracer, ObjectProvider<CommandAuditLog> auditLog,
+            ObjectProvider<CommandWorker> worker, ObjectProvider<CommandWorkerPool> workerPool,
+            ObjectProvider<CheckpointStore> checkpointStore) {
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        runner.setArgumentFilesExpanded(properties.getArgumentFiles().isEnabled());
+        runner.setResultCache(resultCache.getIfAvailable());
+        runner.setParsePlanCache(parsePlanCache.getIfAvailable());
+        runner.setDaemon(daemon.getIfAvailable());
+        runner.setBeanFactory(beanFactory);
+        CommandRoots commandRoots = roots.getIfAvailable();
+        if (commandRoots != null && commandRoots.size() > 1) {
+            runner.setRoots(commandRoots);
+        }
+        runner.setTracer(tracer.getIfAvailable());
+        runner.setAuditLog(auditLog.getIfAvailable());
+        runner.setWorker(worker.getIfAvailable());
+        if (worker.getIfAvailable() == null) {
+            // Workers execute shards themselves
+            runner.setWorkerPool(workerPool.getIfAvailable());
+        }
+        runner.setCheckpointStore(checkpointStore.getIfAvailable());
+        runner.setProgressIntervals(properties.getProgress().getRefreshInterval(),
+                properties.getProgress().getSummaryInterval());
+        return runner;
+    }
+
+    @Bean
+    static CommandScope picocliCommandScope() {
+        return new CommandScope();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.cache", name = "enabled", havingValue = "true")
+    CommandResultCache picocliCommandResultCache(PicocliProperties properties) {
+        PicocliProperties.Cache cache = properties.getCache();
+        return new CommandResultCache(cache.getCommands(), cache.getTimeToLive(), TimeUnit.SECONDS,
+                cache.getMaxSize(), StringUtils.hasText(cache.getFile()) ? Paths.get(cache.getFile()) : null);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.daemon", name = "state-file")
+    CommandDaemon picocliCommandDaemon(PicocliProperties properties) {
+        PicocliProperties.Daemon daemon = properties.getDaemon();
+        return new CommandDaemon(Paths.get(daemon.getStateFile()),
+                (int) TimeUnit.SECONDS.toMillis(daemon.getIdleTimeout()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.tracing", name = "enabled", havingValue = "true")
+    CommandTracer picocliCommandTracer(PicocliProperties properties, ObjectProvider<CommandSpanExporter> exporter) {
+        CommandSpanExporter spanExporter = exporter.getIfAvailable();
+        return new CommandTracer(spanExporter == null ? new LoggingCommandSpanExporter() : spanExporter,
+                Pattern.compile(properties.getTracing().getSensitiveOptions()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.audit", name = "enabled", havingValue = "true")
+    CommandAuditLog picocliCommandAuditLog(PicocliProperties properties) {
+        PicocliProperties.Audit audit = properties.getAudit();
+        return new CommandAuditLog(Paths.get(audit.getFile()), audit.getFsync(), audit.getFsyncInterval(),
+                TimeUnit.MILLISECONDS, audit.getMaxFileSize(), audit.getMaxHistory(),
+                Pattern.compile(properties.getTracing().getSensitiveOptions()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.workers", name = "enabled", havingValue = "true")
+    CommandWorkerPool picocliCommandWorkerPool(PicocliProperties properties) {
+        PicocliProperties.Workers workers = properties.getWorkers();
+        String mainClass = StringUtils.hasText(workers.getMainClass())
+                ? workers.getMainClass()
+                : JvmProcess.mainClass();
+        return new CommandWorkerPool(workers.getSize(),
+                CommandWorkerPool.forking(workers.getJvmArgs(), mainClass));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.workers", name = "worker", havingValue = "true")
+    CommandWorker picocliCommandWorker() {
+        return new CommandWorker();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.checkpoints", name = "enabled", havingValue = "true")
+    CheckpointStore picocliCheckpointStore(PicocliProperties properties) {
+        PicocliProperties.Checkpoints checkpoints = properties.getCheckpoints();
+        return new CheckpointStore(Paths.get(checkpoints.getDirectory()), checkpoints.isFsync(),
+                checkpoints.getCompactionThreshold());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "picocli.parse-cache", name = "enabled", havingValue = "true")
+    ParsePlanCache picocliParsePlanCache(PicocliProperties properties) {
+        return new ParsePlanCache(properties.getParseCache().getMaxSize());
+    }
+
+    @Configuration
+    @ConditionalOnClass({AbstractEndpoint.class, RequestMapping.class})
+    @ConditionalOnProperty(prefix = "picocli.endpoint", name = "enabled", havingValue = "true")
+    static class EndpointConfiguration {
+
+        @Bean
+        CommandEndpointExecutor picocliCommandEndpointExecutor(PicocliProperties properties,
+                ObjectProvider<PicocliCommandLineRunner> runner) {
+            PicocliProperties.Endpoint endpoint = properties.getEndpoint();
+            return new CommandEndpointExecutor(runner, endpoint.getQueueCapacity(), endpoint.getDefaultLimit(),
+                    endpoint.getLimits(), endpoint.getTimeout(), TimeUnit.SECONDS);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        PicocliEndpoint picocliEndpoint(CommandEndpointExecutor executor, ObjectProvider<CommandRoots> roots) {
+            return new PicocliEndpoint(executor, roots.getIfAvailable());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        PicocliMvcEndpoint picocliMvcEndpoint(PicocliEndpoint endpoint) {
+            return new PicocliMvcEndpoint(endpoint);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = HealthCommand.HEALTH_INDICATOR_CLASS)
+    @ConditionalOnProperty(prefix = "picocli.health", name = "enabled", havingValue = "true")
+    static class HealthConfiguration {
+
+        @Bean
+        HealthCommand.ExitCode picocliHealthExitCode() {
+            return new HealthCommand.ExitCode();
+        }
     }
 
     @ConditionalOnMissingBean(CommandLine.class)
@@ -54,23 +202,122 @@ class PicocliAutoConfiguration {
 
         private final Logger logger = LoggerFactory.getLogger(CommandlineConfiguration.class);
 
+        private ConversionService conversionService;
+
         @Bean
-        CommandLine picocliCommandLine(ApplicationContext applicationContext) {
-            Collection<Object> commands = applicationContext.getBeansWithAnnotation(Command.class).values();
-            List<Object> mainCommands = getMainCommands(commands);
-            Object mainCommand = mainCommands.isEmpty() ? new HelpAwarePicocliCommand() {} : mainCommands.get(0);
-            if (mainCommands.size() > 1) {
-                logger.warn("Multiple mains command founds [{}], selected first one {}", mainCommands, mainCommand);
+        CommandRoots picocliCommandRoots(ApplicationContext applicationContext, PicocliProperties properties) {
+            Map<String, Object> commands = new LinkedHashMap<>();
+            commands.putAll(applicationContext.getBeansWithAnnotation(Command.class));
+            Map<String, Object> mainCommands = getMainCommands(commands);
+            if (mainCommands.isEmpty()) {
+                mainCommands.put("main", new HelpAwarePicocliCommand() {});
+            }
+            commands.keySet().removeAll(mainCommands.keySet());
+            Set<Class<?>> mainClasses = mainCommands.values()
+                    .stream()
+                    .map(AopUtils::getTargetClass)
+                    .collect(Collectors.toSet());
+
+            Map<String, CommandLine> roots = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> mainCommand : mainCommands.entrySet()) {
+                Class<?> mainClass = AopUtils.getTargetClass(mainCommand.getValue());
+                // Commands nested in a main command only belong to its root, others are shared by every root
+                List<Object> rootCommands = commands.values()
+                        .stream()
+                        .filter(c -> {
+                            Class<?> outermost = getOutermostClass(AopUtils.getTargetClass(c));
+                            return !mainClasses.contains(outermost) || outermost.equals(mainClass);
+                        })
+                        .collect(Collectors.toList());
+                Object treeBuildEvent = CommandEvents.beginTreeBuild();
+                CommandLine cli = createCommandLine(applicationContext, properties, mainCommand.getValue(),
+                        rootCommands);
+                CommandEvents.endTreeBuild(treeBuildEvent, mainCommand.getKey(), cli);
+                roots.put(mainCommand.getKey(), cli);
+            }
+            String defaultRoot = StringUtils.hasText(properties.getRoots().getDefaultRoot())
+                    ? properties.getRoots().getDefaultRoot()
+                    : roots.keySet().iterator().next();
+            if (roots.size() > 1) {
+                logger.debug("Multiple main commands found, registered roots {} with default {}", roots.keySet(),
+                        defaultRoot);
             }
-            commands.removeAll(mainCommands);
+            if (roots.size() > 1 && properties.getRoots().isArgumentSelection()) {
+                roots.keySet()
+                        .stream()
+                        .filter(roots.get(defaultRoot).getSubcommands()::containsKey)
+                        .forEach(n -> logger.warn("Root {} hides sub-command of default root with same name", n));
+            }
+            return new CommandRoots(roots, defaultRoot, properties.getRoots().getVariable(),
+                    properties.getRoots().isArgumentSelection());
+        }
+
+        @Bean
+        CommandLine picocliCommandLine(CommandRoots roots) {
+            return roots.getDefault();
+        }
 
+        private CommandLine createCommandLine(ApplicationContext applicationContext, PicocliProperties properties,
+                Object mainCommand, Collection<Object> commands) {
             CommandLine cli = new CommandLine(mainCommand);
             registerCommands(cli, commands);
 
+            if (properties.getConversion().isEnabled()) {
+                // Before configurers, thus converters they register take precedence
+                Set<Class<?>> types = ConversionServiceConverters.register(cli,
+                        () -> getConversionService(applicationContext));
+                if (!types.isEmpty()) {
+                    logger.debug("Registered conversion service converters for {}", types);
+                }
+            }
             applicationContext.getBeansOfType(PicocliConfigurer.class).values().forEach(c -> c.configure(cli));
+            if (properties.getCompletion().isEnabled()) {
+                cli.addSubcommand("completion", new CommandLine(new CompletionCommand()));
+            }
+            if (properties.getHealth().isEnabled()) {
+                if (ClassUtils.isPresent(HealthCommand.HEALTH_INDICATOR_CLASS, applicationContext.getClassLoader())) {
+                    HealthCommand.ExitCode exitCode = applicationContext.getBean(HealthCommand.ExitCode.class);
+                    cli.addSubcommand("health", new CommandLine(
+                            new HealthCommand(applicationContext, properties.getHealth().getTimeout(), exitCode)));
+                } else {
+                    logger.warn("Health command requires actuator on the classpath, skip it!");
+                }
+            }
+            // Converters are only propagated to already registered sub-commands
+            cli.registerConverter(ArgumentFile.class, ArgumentFile::of);
+            PicocliProperties.Input input = properties.getInput();
+            cli.registerConverter(RecordInput.class,
+                    v -> RecordInput.of(v, input.getBatchSize(), input.getWorkers()));
+            resolveInvokers(cli);
             return cli;
         }
 
+        /**
+         * Conversion service of the bean factory if any (e.g. {@code conversionService} bean), otherwise a default
+         * formatting conversion service shared by every root.
+         */
+        private ConversionService getConversionService(ApplicationContext applicationContext) {
+            if (conversionService == null) {
+                if (applicationContext instanceof ConfigurableApplicationContext) {
+                    conversionService = ((ConfigurableApplicationContext) applicationContext).getBeanFactory()
+                            .getConversionService();
+                }
+                if (conversionService == null) {
+                    conversionService = new DefaultFormattingConversionService();
+                }
+            }
+            return conversionService;
+        }
+
+        /**
+         * Resolves entry points of the whole tree upfront, thus invalid commands fail on startup and dispatch only
+         * pays for a lookup.
+         */
+        private void resolveInvokers(CommandLine cli) {
+            CommandDescriptor.of(cli.getCommand());
+            cli.getSubcommands().values().forEach(this::resolveInvokers);
+        }
+
         private String getCommandName(Object command) {
             if (command == null) {
                 return null;
@@ -103,15 +350,24 @@ class PicocliAutoConfiguration {
             return Optional.of(parentClass);
         }
 
-        private List<Object> getMainCommands(Collection<Object> candidates) {
-            List<Object> mainCommands = new ArrayList<>();
-            for (Object candidate : candidates) {
-                Class<?> clazz = AopUtils.getTargetClass(candidate);
+        private Class<?> getOutermostClass(Class<?> clazz) {
+            Optional<Class> parentClass = getParentClass(clazz);
+            while (parentClass.isPresent()) {
+                clazz = parentClass.get();
+                parentClass = getParentClass(clazz);
+            }
+            return clazz;
+        }
+
+        private Map<String, Object> getMainCommands(Map<String, Object> candidates) {
+            Map<String, Object> mainCommands = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> candidate : candidates.entrySet()) {
+                Class<?> clazz = AopUtils.getTargetClass(candidate.getValue());
                 Method method = ReflectionUtils.findMethod(Command.class, "name");
                 if (clazz.isAnnotationPresent(Command.class)
                         && method != null
                         && clazz.getAnnotation(Command.class).name().equals(method.getDefaultValue())) {
-                    mainCommands.add(candidate);
+                    mainCommands.put(candidate.getKey(), candidate.getValue());
                 }
             }
             return mainCommands;
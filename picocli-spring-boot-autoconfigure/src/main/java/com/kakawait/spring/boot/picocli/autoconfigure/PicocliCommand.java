@@ -50,6 +50,22 @@ public abstract class PicocliCommand implements Callable<ExitStatus> {
         return rootContext;
     }
 
+    /**
+     * Returns the {@link Checkpoint} of the current invocation.
+     * @return current invocation checkpoint, ignoring saves if checkpoints are disabled
+     */
+    protected Checkpoint getCheckpoint() {
+        return Checkpoint.current();
+    }
+
+    /**
+     * Returns the {@link Progress} of the current invocation, rendering starts on first call.
+     * @return current invocation progress
+     */
+    protected Progress getProgress() {
+        return Progress.current();
+    }
+
     void setParsedCommands(List<CommandLine> parsedCommands) {
         this.parsedCommands = parsedCommands;
     }
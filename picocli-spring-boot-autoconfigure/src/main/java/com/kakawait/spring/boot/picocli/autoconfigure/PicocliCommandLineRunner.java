@@ -1,17 +1,12 @@
 package com.kakawait.spring.boot.picocli.autoconfigure;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.util.ReflectionUtils;
 import picocli.CommandLine;
-import picocli.CommandLine.Option;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import static picocli.CommandLine.Help.Ansi;
 import static picocli.CommandLine.usage;
@@ -21,82 +16,330 @@ import static picocli.CommandLine.usage;
  */
 public class PicocliCommandLineRunner implements CommandLineRunner {
 
-    private static final Logger logger = LoggerFactory.getLogger(PicocliCommandLineRunner.class);
-
     private final CommandLine cli;
 
+    private CommandResultCache resultCache;
+
+    private ParsePlanCache parsePlanCache;
+
+    private CommandDaemon daemon;
+
+    private BeanFactory beanFactory;
+
+    private CommandRoots roots;
+
+    private CommandTracer tracer;
+
+    private CommandAuditLog auditLog;
+
+    private CommandWorker worker;
+
+    private CommandWorkerPool workerPool;
+
+    private CheckpointStore checkpointStore;
+
+    private long progressRefreshInterval = 100;
+
+    private long progressSummaryInterval = 10_000;
+
+    private boolean argumentFilesExpanded;
+
     PicocliCommandLineRunner(CommandLine cli) {
         this.cli = cli;
     }
 
     @Override
     public void run(String... args) throws Exception {
+        if (worker != null) {
+            worker.serve(this);
+            return;
+        }
+        if (daemon != null) {
+            daemon.serve(this);
+            return;
+        }
+        execute(args);
+    }
+
+    /**
+     * Parses then executes given arguments.
+     * @param args command line arguments
+     * @return {@link ExitStatus#TERMINATION} if execution was stopped before its end (parsing error, help or command
+     * flow control), {@link ExitStatus#OK} otherwise
+     * @throws Exception any exception thrown by executed commands
+     */
+    ExitStatus execute(String... args) throws Exception {
+        return executeOn(null, args);
+    }
+
+    /**
+     * Same as {@link #execute(String...)} on given root rather than the one selected by the invocation.
+     * @param rootName name of the root to execute arguments from, {@code null} to select it from the invocation
+     * @param args command line arguments
+     * @return same as {@link #execute(String...)}
+     * @throws Exception any exception thrown by executed commands
+     */
+    ExitStatus executeOn(String rootName, String... args) throws Exception {
+        if (tracer == null) {
+            return parseAndDispatch(null, rootName, args);
+        }
+        CommandSpan span = tracer.start(args);
+        try {
+            ExitStatus exitStatus = parseAndDispatch(span, rootName, args);
+            tracer.end(span, exitStatus, null);
+            return exitStatus;
+        } catch (Exception | Error e) {
+            tracer.end(span, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes already parsed commands, unless help was requested.
+     * @param commands result of {@link CommandLine#parse(String...)}
+     * @param args command line arguments commands were parsed from
+     * @return same as {@link #execute(String...)}
+     * @throws Exception any exception thrown by executed commands
+     */
+    ExitStatus dispatch(List<CommandLine> commands, String... args) throws Exception {
+        return dispatch(null, cli, commands, null, args);
+    }
+
+    private ExitStatus parseAndDispatch(CommandSpan span, String selectedRootName, String... args)
+            throws Exception {
+        long start = auditLog == null ? 0 : System.nanoTime();
+        String[] clientArgs = args;
+        CommandLine root = cli;
+        String rootName = null;
+        boolean resume = false;
         List<CommandLine> commands;
+        Object parseEvent = CommandEvents.beginParse();
         try {
-            commands = cli.parse(args);
+            if (argumentFilesExpanded) {
+                args = ArgumentFile.expand(args);
+            }
+            if (roots != null) {
+                CommandRoots.Selection selection = selectedRootName == null
+                        ? roots.select(args)
+                        : roots.selectNamed(selectedRootName, args);
+                root = selection.getRoot();
+                rootName = selection.getName();
+                args = selection.getArgs();
+            }
+            if (checkpointStore != null) {
+                String[] remaining = CheckpointStore.removeResumeOption(root, args);
+                resume = remaining != args;
+                args = remaining;
+            }
+            commands = parsePlanCache == null ? root.parse(args) : parsePlanCache.parse(root, args);
+            CommandEvents.endParse(parseEvent, root, commands, args.length);
         } catch (Exception ex) {
+            CommandEvents.endParse(parseEvent, root, null, args.length);
             System.err.println(ex.getMessage());
-            cli.usage(System.err, Ansi.AUTO);
-            return;
+            root.usage(System.err, Ansi.AUTO);
+            if (auditLog != null) {
+                auditLog.record(rootName, null, clientArgs, start, ExitStatus.TERMINATION, null);
+            }
+            return ExitStatus.TERMINATION;
         }
-        if (isHelpRequested(cli.getCommand())) {
-            cli.usage(System.out, Ansi.AUTO);
-            return;
+        if (span != null) {
+            span.setAttribute(CommandSpan.COMMAND_PATH, CommandPaths.of(commands));
+            if (rootName != null) {
+                span.setAttribute(CommandSpan.COMMAND_ROOT, rootName);
+            }
         }
-        Optional<CommandLine> helpCommand = commands
-                .stream()
-                .filter(this::isHelpRequested)
-                .findFirst();
-        if (helpCommand.isPresent()) {
-            usage(helpCommand.get(), System.out);
-            return;
+        if (auditLog == null) {
+            return dispatch(rootName, root, commands, span, resume, args);
+        }
+        String path = CommandPaths.of(commands);
+        try {
+            ExitStatus exitStatus = dispatch(rootName, root, commands, span, resume, args);
+            auditLog.record(rootName, path, clientArgs, start, exitStatus, null);
+            return exitStatus;
+        } catch (Exception | Error e) {
+            auditLog.record(rootName, path, clientArgs, start, null, e);
+            throw e;
         }
+    }
 
-        for (CommandLine commandLine : commands) {
+    public CommandLine getCommandLine() {
+        return cli;
+    }
+
+    /**
+     * Returns path of the command invoked by given arguments without parsing them, see
+     * {@link CommandPaths#resolve(CommandLine, String...)}.
+     * @param args command line arguments
+     * @return command path, prefixed by root name when arguments select another root than the default one
+     */
+    String resolvePath(String... args) {
+        if (roots == null) {
+            return CommandPaths.resolve(cli, args);
+        }
+        CommandRoots.Selection selection = roots.select(args);
+        String path = CommandPaths.resolve(selection.getRoot(), selection.getArgs());
+        if (selection.getRoot() == cli) {
+            return path;
+        }
+        return path.isEmpty() ? selection.getName() : selection.getName() + " " + path;
+    }
+
+    /**
+     * Returns every root {@link CommandLine}.
+     * @return named roots when several main commands are defined, otherwise a singleton of {@link #getCommandLine()}
+     */
+    Collection<CommandLine> getCommandLines() {
+        return roots == null ? Collections.singletonList(cli) : roots.asMap().values();
+    }
+
+    void setResultCache(CommandResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    void setParsePlanCache(ParsePlanCache parsePlanCache) {
+        this.parsePlanCache = parsePlanCache;
+    }
+
+    void setArgumentFilesExpanded(boolean argumentFilesExpanded) {
+        this.argumentFilesExpanded = argumentFilesExpanded;
+    }
+
+    void setDaemon(CommandDaemon daemon) {
+        this.daemon = daemon;
+    }
+
+    void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    void setRoots(CommandRoots roots) {
+        this.roots = roots;
+    }
+
+    void setTracer(CommandTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    void setAuditLog(CommandAuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    void setWorker(CommandWorker worker) {
+        this.worker = worker;
+    }
+
+    void setWorkerPool(CommandWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    void setProgressIntervals(long refreshInterval, long summaryInterval) {
+        this.progressRefreshInterval = refreshInterval;
+        this.progressSummaryInterval = summaryInterval;
+    }
+
+    private ExitStatus dispatch(String rootName, CommandLine root, List<CommandLine> commands, CommandSpan span,
+            boolean resume, String... args) throws Exception {
+        if (checkpointStore == null) {
+            return dispatch(rootName, root, commands, span, args);
+        }
+        try (Checkpoint checkpoint = checkpointStore.open(rootName, CommandPaths.of(commands), args, resume)) {
+            Checkpoint.set(checkpoint);
+            ExitStatus exitStatus = dispatch(rootName, root, commands, span, args);
+            checkpoint.complete();
+            return exitStatus;
+        } finally {
+            Checkpoint.set(null);
+        }
+    }
+
+    private ExitStatus dispatch(String rootName, CommandLine root, List<CommandLine> commands, CommandSpan span,
+            String... args) throws Exception {
+        // Indexed loops and precomputed descriptors, dispatch must not allocate (see PicocliCommandLineRunnerBenchmark)
+        Object helpEvent = CommandEvents.beginHelpResolution();
+        Object mainCommand = root.getCommand();
+        if (CommandDescriptor.of(mainCommand).isHelpRequested(mainCommand)) {
+            CommandEvents.endHelpResolution(helpEvent, commands, true);
+            root.usage(System.out, Ansi.AUTO);
+            return ExitStatus.TERMINATION;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            CommandLine commandLine = commands.get(i);
             Object command = commandLine.getCommand();
-            Object result = null;
-
-            if (command instanceof PicocliCommand) {
-                PicocliCommand picocliCommand = (PicocliCommand) command;
-                picocliCommand.setContext(commandLine);
-                picocliCommand.setRootContext(cli);
-                picocliCommand.setParsedCommands(commands);
-                result = picocliCommand.call();
-            } else if (command instanceof Runnable) {
-                ((Runnable) command).run();
-            } else if (command instanceof Callable) {
-                result = ((Callable) command).call();
-            } else {
-                logger.debug("Command {} is triggered but does not implement {} neither {}",
-                        command, Runnable.class, Callable.class);
+            if (CommandDescriptor.of(command).isHelpRequested(command)) {
+                CommandEvents.endHelpResolution(helpEvent, commands, true);
+                usage(commandLine, System.out);
+                return ExitStatus.TERMINATION;
             }
+        }
+        CommandEvents.endHelpResolution(helpEvent, commands, false);
 
-            if (result instanceof ExitStatus && result == ExitStatus.TERMINATION) {
-                break;
+        if (resultCache != null) {
+            String key = resultCache.getKey(commands, args);
+            if (key != null) {
+                // Same command path may exist on several roots, default root keys are kept unqualified
+                String qualifiedKey = rootName == null || root == cli ? key : rootName + '\u0000' + key;
+                return resultCache.execute(qualifiedKey, () -> execute(rootName, root, commands, span, args));
             }
         }
+        return execute(rootName, root, commands, span, args);
     }
 
-    public CommandLine getCommandLine() {
-        return cli;
+    private ExitStatus execute(String rootName, CommandLine root, List<CommandLine> commands, CommandSpan span,
+            String... args) throws Exception {
+        try (CommandScope.Invocation ignored = CommandScope.begin();
+                ProgressRenderer progress = ProgressRenderer.begin(progressRefreshInterval,
+                        progressSummaryInterval)) {
+            return doExecute(rootName, root, commands, span, args);
+        }
     }
 
-    private boolean isHelpRequested(CommandLine commandLine) {
-        Object command = commandLine.getCommand();
-        return isHelpRequested(command);
+    private ExitStatus doExecute(String rootName, CommandLine root, List<CommandLine> commands, CommandSpan span,
+            String... args) throws Exception {
+        for (int i = 0; i < commands.size(); i++) {
+            Object executionEvent = CommandEvents.beginCommandExecution();
+            Object result;
+            try {
+                result = span == null
+                        ? invoke(rootName, root, commands, i, args)
+                        : trace(span, rootName, root, commands, i, args);
+            } catch (Exception | Error e) {
+                CommandEvents.endCommandExecution(executionEvent, commands, i, null, e);
+                throw e;
+            }
+            CommandEvents.endCommandExecution(executionEvent, commands, i, result, null);
+
+            if (result == ExitStatus.TERMINATION) {
+                return ExitStatus.TERMINATION;
+            }
+        }
+        return ExitStatus.OK;
     }
 
-    private boolean isHelpRequested(Object command) {
-        AtomicBoolean result = new AtomicBoolean(false);
-        ReflectionUtils.doWithFields(AopUtils.getTargetClass(command),
-                f -> {
-                    f.setAccessible(true);
-                    if (f.getBoolean(command)) {
-                        result.set(true);
-                    }
-                },
-                f -> f.isAnnotationPresent(Option.class) && f.getAnnotation(Option.class).help());
-        return result.get();
+    private Object invoke(String rootName, CommandLine root, List<CommandLine> commands, int index,
+            String... args) throws Exception {
+        CommandLine commandLine = commands.get(index);
+        Object command = commandLine.getCommand();
+        if (workerPool != null && command instanceof ShardedCommand) {
+            return workerPool.execute(rootName, commands, index, (ShardedCommand) command, args);
+        }
+        return CommandDescriptor.of(command).getInvoker().invoke(command, commandLine, commands, root, beanFactory);
     }
 
+    private Object trace(CommandSpan parent, String rootName, CommandLine root, List<CommandLine> commands,
+            int index, String... args) throws Exception {
+        CommandSpan span = tracer.start(parent, CommandPaths.of(commands.subList(0, index + 1)));
+        Object result;
+        try {
+            result = invoke(rootName, root, commands, index, args);
+        } catch (Exception | Error e) {
+            tracer.end(span, null, e);
+            throw e;
+        }
+        tracer.end(span, result == ExitStatus.TERMINATION ? ExitStatus.TERMINATION : ExitStatus.OK, null);
+        return result;
+    }
 }
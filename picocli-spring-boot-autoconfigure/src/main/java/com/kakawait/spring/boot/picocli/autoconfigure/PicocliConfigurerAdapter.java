@@ -1,13 +1,52 @@
 package com.kakawait.spring.boot.picocli.autoconfigure;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
 import picocli.CommandLine;
 
+import java.util.function.Supplier;
+
 /**
  * @author Thibaud Leprêtre
  */
-public abstract class PicocliConfigurerAdapter implements PicocliConfigurer {
+public abstract class PicocliConfigurerAdapter implements PicocliConfigurer, BeanFactoryAware {
+
+    private BeanFactory beanFactory;
 
     @Override
     public void configure(CommandLine commandLine) {
     }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * Registers a sub-command whose target is only resolved by calling given {@link Supplier} on invocation.
+     * @param commandLine parent command line
+     * @param name sub-command name
+     * @param targetType type of supplied targets, must be {@link Runnable} or {@link java.util.concurrent.Callable}
+     * @param supplier target supplier, see {@link LazyPicocliCommand}
+     * @param <T> target type
+     * @return parent command line
+     * @throws IllegalArgumentException if target type is neither {@code Runnable} nor {@code Callable}
+     */
+    protected <T> CommandLine addLazySubcommand(CommandLine commandLine, String name, Class<T> targetType,
+            Supplier<? extends T> supplier) {
+        return commandLine.addSubcommand(name, LazyPicocliCommand.of(targetType, supplier));
+    }
+
+    /**
+     * Registers a sub-command whose target bean is only looked up on invocation.
+     * @param commandLine parent command line
+     * @param name sub-command name
+     * @param beanName target bean name, see {@link LazyPicocliCommand}
+     * @return parent command line
+     * @throws IllegalArgumentException if bean type is neither {@code Runnable} nor {@code Callable}
+     */
+    protected CommandLine addLazySubcommand(CommandLine commandLine, String name, String beanName) {
+        return commandLine.addSubcommand(name, LazyPicocliCommand.of(beanFactory, beanName));
+    }
 }
@@ -0,0 +1,92 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.util.ReflectionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@code picocli} actuator endpoint, describes the {@link CommandLine} tree and executes commands in-process (see
+ * {@link PicocliMvcEndpoint}).
+ *
+ * @author Thibaud Leprêtre
+ */
+public class PicocliEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final CommandEndpointExecutor executor;
+
+    private final CommandRoots roots;
+
+    PicocliEndpoint(CommandEndpointExecutor executor, CommandRoots roots) {
+        super("picocli", true);
+        this.executor = executor;
+        this.roots = roots;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        Map<String, Object> commands = new LinkedHashMap<>();
+        if (roots != null) {
+            roots.asMap().forEach((name, root) -> commands.put(name, describe(root)));
+        } else if (executor.getRunner() != null) {
+            // User defined CommandLine bean
+            commands.put("main", describe(executor.getRunner().getCommandLine()));
+        }
+        description.put("roots", commands);
+        description.put("pending", executor.getPendingCount());
+        return description;
+    }
+
+    /**
+     * Executes given arguments, see {@link CommandEndpointExecutor#execute(String...)}.
+     * @param args command line arguments
+     * @return execution description
+     * @throws TimeoutException if execution did not complete in time
+     * @throws InterruptedException if interrupted while waiting for execution
+     */
+    public Map<String, Object> execute(String... args) throws TimeoutException, InterruptedException {
+        return executor.execute(args);
+    }
+
+    CompletableFuture<Map<String, Object>> submit(String... args) {
+        return executor.submit(args);
+    }
+
+    long getTimeout() {
+        return executor.getTimeout();
+    }
+
+    private Map<String, Object> describe(CommandLine commandLine) {
+        Class<?> commandClass = AopUtils.getTargetClass(commandLine.getCommand());
+        Map<String, Object> description = new LinkedHashMap<>();
+        Command command = commandClass.getAnnotation(Command.class);
+        if (command != null && command.description().length > 0) {
+            description.put("description", String.join(" ", command.description()));
+        }
+        List<Map<String, Object>> options = new ArrayList<>();
+        ReflectionUtils.doWithFields(commandClass, f -> {
+            Option option = f.getAnnotation(Option.class);
+            Map<String, Object> o = new LinkedHashMap<>();
+            o.put("names", Arrays.asList(option.names()));
+            o.put("description", String.join(" ", option.description()));
+            o.put("required", option.required());
+            options.add(o);
+        }, f -> f.isAnnotationPresent(Option.class) && !f.getAnnotation(Option.class).hidden());
+        description.put("options", options);
+        Map<String, Object> subcommands = new LinkedHashMap<>();
+        commandLine.getSubcommands().forEach((name, subcommand) -> subcommands.put(name, describe(subcommand)));
+        description.put("subcommands", subcommands);
+        return description;
+    }
+}
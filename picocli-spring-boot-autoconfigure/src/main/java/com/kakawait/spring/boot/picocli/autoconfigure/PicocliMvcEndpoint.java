@@ -0,0 +1,70 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exposes {@link PicocliEndpoint} over HTTP, {@code GET} describes the command tree while {@code POST} executes
+ * given arguments:
+ *
+ * <pre>
+ * {@code
+ * curl -X POST -H 'Content-Type: application/json' -d '{"args": ["flyway", "migrate"]}' localhost:8080/picocli
+ * }
+ * </pre>
+ *
+ * Request thread is released while invocation is pending or running (asynchronous request processing). Responds
+ * {@code 429 Too Many Requests} when invocation is not admitted and {@code 503 Service Unavailable} when it did not
+ * complete in time.
+ *
+ * @author Thibaud Leprêtre
+ */
+public class PicocliMvcEndpoint extends EndpointMvcAdapter {
+
+    private final PicocliEndpoint delegate;
+
+    PicocliMvcEndpoint(PicocliEndpoint delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Object execute(@RequestBody Map<String, List<String>> request) {
+        if (!delegate.isEnabled()) {
+            return getDisabledResponse();
+        }
+        List<String> args = request.getOrDefault("args", Collections.emptyList());
+        CompletableFuture<Map<String, Object>> execution;
+        try {
+            execution = delegate.submit(args.toArray(new String[args.size()]));
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()),
+                    HttpStatus.TOO_MANY_REQUESTS);
+        }
+        DeferredResult<Object> result = new DeferredResult<>(delegate.getTimeout(),
+                new ResponseEntity<>(Collections.singletonMap("message", "Command did not complete in time"),
+                        HttpStatus.SERVICE_UNAVAILABLE));
+        result.onTimeout(() -> execution.cancel(false));
+        execution.whenComplete((r, e) -> {
+            if (e == null) {
+                result.setResult(r);
+            } else if (!execution.isCancelled()) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,792 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.boot.bind.PropertiesConfigurationFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.validation.BindException;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+@ConfigurationProperties(prefix = "picocli")
+public class PicocliProperties {
+
+    private final Cache cache = new Cache();
+
+    private final ParseCache parseCache = new ParseCache();
+
+    private final ArgumentFiles argumentFiles = new ArgumentFiles();
+
+    private final Input input = new Input();
+
+    private final CliMode cliMode = new CliMode();
+
+    private final Completion completion = new Completion();
+
+    private final Daemon daemon = new Daemon();
+
+    private final Roots roots = new Roots();
+
+    private final Tracing tracing = new Tracing();
+
+    private final Endpoint endpoint = new Endpoint();
+
+    private final Conversion conversion = new Conversion();
+
+    private final Audit audit = new Audit();
+
+    private final Workers workers = new Workers();
+
+    private final Checkpoints checkpoints = new Checkpoints();
+
+    private final Progress progress = new Progress();
+
+    private final Health health = new Health();
+
+    /**
+     * Binds properties from given environment, for components created before configuration properties binding.
+     * @param environment environment to bind properties from
+     * @return bound properties
+     */
+    static PicocliProperties bind(ConfigurableEnvironment environment) {
+        PicocliProperties properties = new PicocliProperties();
+        PropertiesConfigurationFactory<PicocliProperties> factory = new PropertiesConfigurationFactory<>(properties);
+        factory.setPropertySources(environment.getPropertySources());
+        factory.setTargetName("picocli");
+        try {
+            factory.bindPropertiesToTarget();
+        } catch (BindException e) {
+            throw new IllegalStateException("Unable to bind picocli properties", e);
+        }
+        return properties;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public ArgumentFiles getArgumentFiles() {
+        return argumentFiles;
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    public CliMode getCliMode() {
+        return cliMode;
+    }
+
+    public Completion getCompletion() {
+        return completion;
+    }
+
+    public Daemon getDaemon() {
+        return daemon;
+    }
+
+    public Roots getRoots() {
+        return roots;
+    }
+
+    public Tracing getTracing() {
+        return tracing;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public Conversion getConversion() {
+        return conversion;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Workers getWorkers() {
+        return workers;
+    }
+
+    public Checkpoints getCheckpoints() {
+        return checkpoints;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    public static class Cache {
+
+        /**
+         * Enable result caching for commands listed in {@code picocli.cache.commands}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Command paths (sub-command names separated by a space, without main command) that are read-only and
+         * whose output can be replayed, e.g. {@code health db}.
+         */
+        private List<String> commands = new ArrayList<>();
+
+        /**
+         * Time to live of a cached result in seconds.
+         */
+        private long timeToLive = 60;
+
+        /**
+         * Maximum number of cached results, least recently used results are evicted first.
+         */
+        private int maxSize = 100;
+
+        /**
+         * Optional file used to persist cached results across JVM invocations.
+         */
+        private String file;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getCommands() {
+            return commands;
+        }
+
+        public void setCommands(List<String> commands) {
+            this.commands = commands;
+        }
+
+        public long getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(long timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+    }
+
+    public static class ParseCache {
+
+        /**
+         * Enable memoization of parse plans for repeated identical argument vectors.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of memoized parse plans, least recently used plans are evicted first.
+         */
+        private int maxSize = 64;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class ArgumentFiles {
+
+        /**
+         * Expand {@code @file} arguments with file content, one argument per line.
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Input {
+
+        /**
+         * Default number of records per batch for {@code RecordInput} fields.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Default number of threads processing {@code RecordInput} batches in parallel.
+         */
+        private int workers = 1;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+    }
+
+    public static class CliMode {
+
+        /**
+         * Skip auto-configurations that are not required by commands on the invoked path, see
+         * {@code @CommandRequirements}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Auto-configuration class names that are always applied in CLI mode.
+         */
+        private List<String> include = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getInclude() {
+            return include;
+        }
+
+        public void setInclude(List<String> include) {
+            this.include = include;
+        }
+    }
+
+    public static class Completion {
+
+        /**
+         * Register a {@code completion} sub-command printing bash/zsh completion script.
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Daemon {
+
+        /**
+         * State file of the daemon, when defined application runs as a daemon executing invocations forwarded by
+         * {@code DaemonLauncher} instead of its own arguments. Set by the launcher.
+         */
+        private String stateFile;
+
+        /**
+         * Time in seconds after which an idle daemon stops.
+         */
+        private int idleTimeout = 3 * 60 * 60;
+
+        public String getStateFile() {
+            return stateFile;
+        }
+
+        public void setStateFile(String stateFile) {
+            this.stateFile = stateFile;
+        }
+
+        public int getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    public static class Roots {
+
+        /**
+         * Bean name of the main command used when invocation does not select any root, default to the first main
+         * command found.
+         */
+        private String defaultRoot;
+
+        /**
+         * Client environment variable selecting the root (unless first argument selected it), e.g. set from
+         * {@code basename $0} by a launcher script shared by symbolic links.
+         */
+        private String variable = "PICOCLI_ROOT";
+
+        /**
+         * Select the root by the first argument when it is a root name, root names then hide sub-commands of the
+         * default root with the same name.
+         */
+        private boolean argumentSelection = false;
+
+        public String getDefaultRoot() {
+            return defaultRoot;
+        }
+
+        public void setDefaultRoot(String defaultRoot) {
+            this.defaultRoot = defaultRoot;
+        }
+
+        public String getVariable() {
+            return variable;
+        }
+
+        public void setVariable(String variable) {
+            this.variable = variable;
+        }
+
+        public boolean isArgumentSelection() {
+            return argumentSelection;
+        }
+
+        public void setArgumentSelection(boolean argumentSelection) {
+            this.argumentSelection = argumentSelection;
+        }
+    }
+
+    public static class Tracing {
+
+        /**
+         * Enable tracing of command invocations, spans are exported to {@code CommandSpanExporter} bean, logged if
+         * none is defined.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Regular expression matching names (without leading dashes) of options whose values are masked in traced
+         * arguments.
+         */
+        private String sensitiveOptions = "(?i).*(password|passwd|secret|token|credentials?|api-?key).*";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSensitiveOptions() {
+            return sensitiveOptions;
+        }
+
+        public void setSensitiveOptions(String sensitiveOptions) {
+            this.sensitiveOptions = sensitiveOptions;
+        }
+    }
+
+    public static class Endpoint {
+
+        /**
+         * Enable {@code picocli} actuator endpoint, describing and executing commands in-process.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of invocations waiting for execution, further invocations are rejected.
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * Maximum number of admitted (pending or running) invocations of a single command.
+         */
+        private int defaultLimit = 4;
+
+        /**
+         * Per command maximum number of admitted invocations, keyed by command path, e.g.
+         * {@code picocli.endpoint.limits[flyway migrate]=1}.
+         */
+        private Map<String, Integer> limits = new LinkedHashMap<>();
+
+        /**
+         * Time in seconds a request waits for its invocation to complete.
+         */
+        private long timeout = 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        public void setDefaultLimit(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public Map<String, Integer> getLimits() {
+            return limits;
+        }
+
+        public void setLimits(Map<String, Integer> limits) {
+            this.limits = limits;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Conversion {
+
+        /**
+         * Convert option and parameter types unknown by picocli using Spring conversion service.
+         */
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Audit {
+
+        /**
+         * Enable audit log of command invocations.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Audit log file, values of options matching {@code picocli.tracing.sensitive-options} are masked.
+         */
+        private String file = "picocli-audit.log";
+
+        /**
+         * When written records are synced to storage device: {@code never} (left to operating system),
+         * {@code batch} (after each written batch) or {@code interval} (at most once per {@code fsync-interval}).
+         */
+        private Fsync fsync = Fsync.INTERVAL;
+
+        /**
+         * Maximum time in milliseconds between two syncs when {@code fsync} is {@code interval}.
+         */
+        private long fsyncInterval = 1000;
+
+        /**
+         * Maximum size in bytes of audit log file before rotation.
+         */
+        private long maxFileSize = 10 * 1024 * 1024;
+
+        /**
+         * Number of rotated files kept, oldest are deleted first.
+         */
+        private int maxHistory = 7;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public Fsync getFsync() {
+            return fsync;
+        }
+
+        public void setFsync(Fsync fsync) {
+            this.fsync = fsync;
+        }
+
+        public long getFsyncInterval() {
+            return fsyncInterval;
+        }
+
+        public void setFsyncInterval(long fsyncInterval) {
+            this.fsyncInterval = fsyncInterval;
+        }
+
+        public long getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        public int getMaxHistory() {
+            return maxHistory;
+        }
+
+        public void setMaxHistory(int maxHistory) {
+            this.maxHistory = maxHistory;
+        }
+
+        public enum Fsync {
+            /**
+             * Never sync, leave it to the operating system.
+             */
+            NEVER,
+            /**
+             * Sync after each written batch.
+             */
+            BATCH,
+            /**
+             * Sync at most once per interval, records written since last sync can be lost on power failure.
+             */
+            INTERVAL
+        }
+    }
+
+    public static class Workers {
+
+        /**
+         * Enable worker JVMs executing shards of {@code ShardedCommand}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of worker JVMs, forked on first use.
+         */
+        private int size = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Worker JVM arguments (memory settings, system properties, ...).
+         */
+        private List<String> jvmArgs = new ArrayList<>();
+
+        /**
+         * Application main class, default to the main class of the current JVM or executable jar.
+         */
+        private String mainClass;
+
+        /**
+         * Whether application runs as a worker serving shards from its standard input. Set on forked workers.
+         */
+        private boolean worker = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public List<String> getJvmArgs() {
+            return jvmArgs;
+        }
+
+        public void setJvmArgs(List<String> jvmArgs) {
+            this.jvmArgs = jvmArgs;
+        }
+
+        public String getMainClass() {
+            return mainClass;
+        }
+
+        public void setMainClass(String mainClass) {
+            this.mainClass = mainClass;
+        }
+
+        public boolean isWorker() {
+            return worker;
+        }
+
+        public void setWorker(boolean worker) {
+            this.worker = worker;
+        }
+    }
+
+    public static class Checkpoints {
+
+        /**
+         * Enable checkpoints and {@code --resume} option.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory of checkpoint logs.
+         */
+        private String directory = Paths.get(System.getProperty("user.home"), ".picocli", "checkpoints").toString();
+
+        /**
+         * Sync each saved checkpoint to storage device, checkpoints survive process crashes even when disabled.
+         */
+        private boolean fsync = false;
+
+        /**
+         * Number of checkpoints appended to a log before it is compacted.
+         */
+        private int compactionThreshold = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public boolean isFsync() {
+            return fsync;
+        }
+
+        public void setFsync(boolean fsync) {
+            this.fsync = fsync;
+        }
+
+        public int getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(int compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+
+    public static class Progress {
+
+        /**
+         * Interval in milliseconds between two samples of command progress, thus between two redraws of the
+         * progress bar.
+         */
+        private long refreshInterval = 100;
+
+        /**
+         * Interval in milliseconds between two progress summary lines, when standard error is not a terminal.
+         */
+        private long summaryInterval = 10_000;
+
+        public long getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(long refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public long getSummaryInterval() {
+            return summaryInterval;
+        }
+
+        public void setSummaryInterval(long summaryInterval) {
+            this.summaryInterval = summaryInterval;
+        }
+    }
+
+    public static class Health {
+
+        /**
+         * Register a {@code health} sub-command evaluating every {@code HealthIndicator} bean, requires actuator.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time in milliseconds given to each health indicator, an indicator still running afterwards is down.
+         */
+        private long timeout = 5000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of the current invocation, rendered by a dedicated thread at a fixed rate: an ANSI bar on standard error
+ * when it is a terminal, periodic summary lines otherwise.
+ *
+ * Updates never print nor lock, counters are striped ({@link LongAdder}) thus many threads can update the same
+ * progress from hot loops. Obtain it once from the invocation thread (rendering starts on first {@link #current()}
+ * call) then share it with worker threads:
+ *
+ * <pre>
+ * {@code
+ * Progress progress = Progress.current();
+ * progress.startPhase("import", rows.size());
+ * rows.parallelStream().forEach(row -> {
+ *     importRow(row);
+ *     progress.increment();
+ * });
+ * }
+ * </pre>
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class Progress {
+
+    private final LongAdder done = new LongAdder();
+
+    private volatile long total = -1;
+
+    private volatile String phase;
+
+    Progress() {
+    }
+
+    /**
+     * Returns progress of current invocation, starting its rendering.
+     * @return invocation progress, or a progress that is never rendered if there is no current invocation
+     */
+    public static Progress current() {
+        ProgressRenderer renderer = ProgressRenderer.current();
+        return renderer == null ? new Progress() : renderer.start();
+    }
+
+    public void increment() {
+        done.increment();
+    }
+
+    public void add(long amount) {
+        done.add(amount);
+    }
+
+    /**
+     * Starts a new phase, resetting done count.
+     * @param phase phase name
+     * @param total expected count of the phase, negative if unknown
+     */
+    public void startPhase(String phase, long total) {
+        this.phase = phase;
+        this.total = total;
+        done.reset();
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * Returns done count, exact only once updating threads are done.
+     * @return done count of current phase
+     */
+    public long getDone() {
+        return done.sum();
+    }
+
+    /**
+     * Returns expected count of current phase.
+     * @return expected count, negative if unknown
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+}
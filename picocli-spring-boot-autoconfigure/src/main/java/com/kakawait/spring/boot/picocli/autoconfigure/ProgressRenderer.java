@@ -0,0 +1,155 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Renders {@link Progress} of a single invocation from a dedicated thread, only started if the invocation uses its
+ * progress.
+ *
+ * Progress is sampled every {@code refreshInterval}: redrawn in place as an ANSI bar when standard error is a terminal,
+ * otherwise printed as a summary line every {@code summaryInterval}. A last line is printed once invocation ends.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class ProgressRenderer implements AutoCloseable {
+
+    private static final ThreadLocal<ProgressRenderer> current = new ThreadLocal<>();
+
+    private static final int BAR_WIDTH = 30;
+
+    private final ProgressRenderer previous;
+
+    private final long refreshInterval;
+
+    private final long summaryInterval;
+
+    private Progress progress;
+
+    private Thread thread;
+
+    private PrintStream out;
+
+    private boolean ansi;
+
+    private volatile boolean closed;
+
+    private long lastDone;
+
+    private long lastSample;
+
+    private long lastSummary;
+
+    private ProgressRenderer(ProgressRenderer previous, long refreshInterval, long summaryInterval) {
+        this.previous = previous;
+        this.refreshInterval = refreshInterval;
+        this.summaryInterval = summaryInterval;
+    }
+
+    /**
+     * Binds a renderer to the calling thread until returned renderer is closed, by the same thread.
+     * @param refreshInterval sampling interval in milliseconds
+     * @param summaryInterval interval between summary lines in milliseconds, when not rendering to a terminal
+     * @return bound renderer
+     */
+    static ProgressRenderer begin(long refreshInterval, long summaryInterval) {
+        ProgressRenderer renderer = new ProgressRenderer(current.get(), TimeUnit.MILLISECONDS.toNanos(refreshInterval),
+                TimeUnit.MILLISECONDS.toNanos(summaryInterval));
+        current.set(renderer);
+        return renderer;
+    }
+
+    static ProgressRenderer current() {
+        return current.get();
+    }
+
+    /**
+     * Starts rendering, unless already started.
+     * @return rendered progress
+     */
+    synchronized Progress start() {
+        if (progress == null) {
+            progress = new Progress();
+            // Standard error of the invocation, may be redirected to a daemon client
+            OutputStream err = StandardStreams.currentErr();
+            out = err instanceof PrintStream ? (PrintStream) err : new PrintStream(err, true);
+            ansi = Ansi.AUTO.enabled();
+            lastSample = lastSummary = System.nanoTime();
+            if (!closed) {
+                thread = new Thread(this::render, "picocli-progress");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        return progress;
+    }
+
+    @Override
+    public void close() {
+        current.set(previous);
+        Thread rendering;
+        synchronized (this) {
+            closed = true;
+            rendering = thread;
+        }
+        if (rendering == null) {
+            return;
+        }
+        LockSupport.unpark(rendering);
+        try {
+            rendering.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void render() {
+        while (!closed) {
+            LockSupport.parkNanos(this, refreshInterval);
+            long now = System.nanoTime();
+            if (ansi) {
+                out.print('\r' + format(now) + "\u001B[K");
+                out.flush();
+            } else if (now - lastSummary >= summaryInterval) {
+                out.println(format(now));
+                lastSummary = now;
+            }
+        }
+        String line = format(System.nanoTime());
+        out.println(ansi ? '\r' + line + "\u001B[K" : line);
+    }
+
+    private String format(long now) {
+        long done = progress.getDone();
+        long total = progress.getTotal();
+        String phase = progress.getPhase();
+        long elapsed = now - lastSample;
+        long rate = elapsed <= 0 ? 0 : Math.max(0, (done - lastDone) * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        lastDone = done;
+        lastSample = now;
+
+        StringBuilder line = new StringBuilder();
+        if (phase != null) {
+            line.append(phase).append(' ');
+        }
+        if (total > 0) {
+            int percent = (int) Math.min(100, done * 100 / total);
+            if (ansi) {
+                int filled = percent * BAR_WIDTH / 100;
+                line.append('[');
+                for (int i = 0; i < BAR_WIDTH; i++) {
+                    line.append(i < filled ? '=' : i == filled ? '>' : ' ');
+                }
+                line.append("] ");
+            }
+            line.append(percent).append("% ").append(done).append('/').append(total);
+        } else {
+            line.append(done);
+        }
+        return line.append(" (").append(rate).append("/s)").toString();
+    }
+}
@@ -0,0 +1,239 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.springframework.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Streaming record (line) input, either standard input ({@code -}) or a file.
+ *
+ * Can be used as {@link picocli.CommandLine.Option} or {@link picocli.CommandLine.Parameters} field type, thus
+ * {@code cat ids.txt | my-cli purge -} will give to the {@code purge} command an input reading piped records:
+ *
+ * <pre>
+ * {@code
+ * @Parameters(paramLabel = "INPUT", description = "ids to purge, - to read standard input")
+ * RecordInput ids;
+ *
+ * @Override
+ * public void run() {
+ *     ids.forEachBatch(batch -> repository.deleteAll(batch));
+ * }
+ * }
+ * </pre>
+ *
+ * Records are read through a large buffer and handed out by batches. When more than one worker is used batches are
+ * processed in parallel while reading ahead at most two batches per worker, thus memory usage is bounded regardless of
+ * input size. Input can only be consumed once.
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class RecordInput {
+
+    static final String STANDARD_INPUT = "-";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> END = Collections.emptyList();
+
+    private final Source source;
+
+    private final int batchSize;
+
+    private final int workers;
+
+    private RecordInput(Source source, int batchSize, int workers) {
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+        Assert.isTrue(workers > 0, "Workers must be positive");
+        this.source = source;
+        this.batchSize = batchSize;
+        this.workers = workers;
+    }
+
+    /**
+     * Creates input from a command line value using default batch size (1000) and a single worker.
+     * @param value {@code -} for standard input, file path otherwise
+     * @return record input
+     */
+    public static RecordInput of(String value) {
+        return of(value, 1000, 1);
+    }
+
+    static RecordInput of(String value, int batchSize, int workers) {
+        Assert.hasText(value, "Value must not be empty");
+        if (STANDARD_INPUT.equals(value)) {
+            // Never close standard input on behalf of the application
+            return new RecordInput(() -> new FilterInputStream(System.in) {
+                @Override
+                public void close() {
+                }
+            }, batchSize, workers);
+        }
+        Path path = ClientContext.current().resolve(value);
+        return new RecordInput(() -> Files.newInputStream(path), batchSize, workers);
+    }
+
+    static RecordInput of(InputStream inputStream, int batchSize, int workers) {
+        return new RecordInput(() -> inputStream, batchSize, workers);
+    }
+
+    /**
+     * Returns raw input as a channel, for commands dealing with binary input.
+     * @return readable channel
+     * @throws IOException if input could not be opened
+     */
+    public ReadableByteChannel channel() throws IOException {
+        return Channels.newChannel(source.open());
+    }
+
+    /**
+     * Returns input records as a lazily populated stream, stream should be closed after use.
+     * @return records stream
+     * @throws IOException if input could not be opened
+     */
+    public Stream<String> lines() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(source.open(), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Processes records by batches using configured batch size and workers.
+     * @param consumer batch consumer, may be called concurrently if more than one worker is configured
+     * @throws Exception first exception thrown by consumer or while reading input
+     */
+    public void forEachBatch(BatchConsumer consumer) throws Exception {
+        forEachBatch(batchSize, workers, consumer);
+    }
+
+    /**
+     * Processes records by batches.
+     * @param batchSize maximum number of records per batch
+     * @param workers number of threads processing batches in parallel, {@code 1} to process in calling thread
+     * @param consumer batch consumer, may be called concurrently if {@code workers > 1}
+     * @throws Exception first exception thrown by consumer or while reading input
+     */
+    public void forEachBatch(int batchSize, int workers, BatchConsumer consumer) throws Exception {
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+        Assert.isTrue(workers > 0, "Workers must be positive");
+        try (Stream<String> lines = lines()) {
+            if (workers == 1) {
+                List<String> batch = new ArrayList<>(batchSize);
+                for (String line : (Iterable<String>) lines::iterator) {
+                    batch.add(line);
+                    if (batch.size() == batchSize) {
+                        consumer.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    consumer.accept(batch);
+                }
+            } else {
+                forEachBatchInParallel(lines, batchSize, workers, consumer);
+            }
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    private static void forEachBatchInParallel(Stream<String> lines, int batchSize, int workers,
+            BatchConsumer consumer) throws Exception {
+        BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(workers * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                // Batches are consumed on behalf of the invocation, thus use its scope, client and standard streams
+                futures.add(executor.submit(CommandScope.wrap(ClientContext.wrap(StandardStreams.wrap(() -> {
+                    List<String> batch;
+                    while ((batch = queue.take()) != END) {
+                        // Keep draining after a failure in order to never block reader
+                        if (failure.get() != null) {
+                            continue;
+                        }
+                        try {
+                            consumer.accept(batch);
+                        } catch (Exception | Error e) {
+                            // Errors too, a dead worker would leave reader blocked on a full queue
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                    return null;
+                })))));
+            }
+            List<String> batch = new ArrayList<>(batchSize);
+            for (String line : (Iterable<String>) lines::iterator) {
+                if (failure.get() != null) {
+                    break;
+                }
+                batch.add(line);
+                if (batch.size() == batchSize) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                queue.put(batch);
+            }
+            for (int i = 0; i < workers; i++) {
+                queue.put(END);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Throwable error = failure.get();
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw (Exception) error;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(List<String> batch) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,65 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.util.Arrays;
+
+/**
+ * Result of a shard of a {@link ShardedCommand} executed by a worker JVM.
+ *
+ * @author Thibaud Leprêtre
+ */
+public final class ShardResult {
+
+    private final int index;
+
+    private final String[] args;
+
+    private final ExitStatus exitStatus;
+
+    private final String output;
+
+    private final String errorOutput;
+
+    ShardResult(int index, String[] args, ExitStatus exitStatus, String output, String errorOutput) {
+        this.index = index;
+        this.args = args;
+        this.exitStatus = exitStatus;
+        this.output = output;
+        this.errorOutput = errorOutput;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String[] getArgs() {
+        return Arrays.copyOf(args, args.length);
+    }
+
+    /**
+     * Returns exit status of the shard.
+     * @return exit status, {@code null} if shard failed
+     */
+    public ExitStatus getExitStatus() {
+        return exitStatus;
+    }
+
+    public boolean isFailed() {
+        return exitStatus == null;
+    }
+
+    /**
+     * Returns what the shard wrote to standard output.
+     * @return shard standard output
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns what the shard wrote to standard error, including stack trace of the failure if any.
+     * @return shard standard error
+     */
+    public String getErrorOutput() {
+        return errorOutput;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.util.List;
+
+/**
+ * Command whose input can be split into shards executed in parallel by worker JVMs ({@code picocli.workers.enabled}),
+ * e.g. CPU-bound transformations that would saturate a single heap.
+ *
+ * On the coordinator, the command is not executed: its input is split by {@link #shard(int)}, each shard being
+ * executed by a worker as the same command path (parent command options included) followed by shard arguments, then
+ * worker results are merged by {@link #merge(List)}. On a worker (or when workers are disabled), the command is
+ * executed as any other command.
+ *
+ * @author Thibaud Leprêtre
+ */
+public interface ShardedCommand {
+
+    /**
+     * Splits input of the current invocation.
+     * @param workers number of workers, a hint since shards are queued until a worker is available
+     * @return arguments of each shard, parsed by a worker instance of this command
+     */
+    List<String[]> shard(int workers);
+
+    /**
+     * Merges shard results, by default prints outputs in shard order.
+     * @param results shard results, in the order returned by {@link #shard(int)}
+     * @return {@link ExitStatus#TERMINATION} if any shard terminated, {@link ExitStatus#OK} otherwise
+     * @throws IllegalStateException if any shard failed
+     */
+    default ExitStatus merge(List<ShardResult> results) {
+        ExitStatus exitStatus = ExitStatus.OK;
+        int failures = 0;
+        for (ShardResult result : results) {
+            System.out.print(result.getOutput());
+            System.err.print(result.getErrorOutput());
+            if (result.isFailed()) {
+                failures++;
+            } else if (result.getExitStatus() == ExitStatus.TERMINATION) {
+                exitStatus = ExitStatus.TERMINATION;
+            }
+        }
+        if (failures > 0) {
+            throw new IllegalStateException(failures + " of " + results.size() + " shards failed");
+        }
+        return exitStatus;
+    }
+}
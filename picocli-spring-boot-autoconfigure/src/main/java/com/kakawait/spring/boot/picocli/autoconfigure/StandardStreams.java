@@ -0,0 +1,215 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Per thread redirection of {@link System#in}, {@link System#out} and {@link System#err}.
+ *
+ * Once installed, standard streams are replaced by routing streams that read from or write to the redirection of the
+ * current thread or to the original stream when no redirection is active. Thus concurrent invocations can use their
+ * own input and capture their own output without interfering with each other.
+ *
+ * Redirection is not inherited by child threads, since pooled threads would keep writing to the redirection of the
+ * invocation that created them. Tasks executed on behalf of an invocation must be wrapped using
+ * {@link #wrap(Callable)}.
+ *
+ * @author Thibaud Leprêtre
+ */
+final class StandardStreams {
+
+    private static final ThreadLocal<InputStream> in = new ThreadLocal<>();
+
+    private static final ThreadLocal<OutputStream> out = new ThreadLocal<>();
+
+    private static final ThreadLocal<OutputStream> err = new ThreadLocal<>();
+
+    private static volatile InputStream installedIn;
+
+    private static volatile PrintStream installedOut;
+
+    private static volatile PrintStream installedErr;
+
+    private static volatile InputStream originalIn;
+
+    private static volatile PrintStream originalOut;
+
+    private static volatile PrintStream originalErr;
+
+    private StandardStreams() {
+    }
+
+    /**
+     * Redirects standard streams of the current thread until returned {@link Redirection} is closed.
+     * @param target output stream receiving {@link System#out} writes
+     * @param errorTarget output stream receiving {@link System#err} writes
+     * @return redirection handle that restores previous targets when closed
+     */
+    static Redirection redirect(OutputStream target, OutputStream errorTarget) {
+        return redirect(in.get(), target, errorTarget);
+    }
+
+    /**
+     * Redirects standard streams of the current thread until returned {@link Redirection} is closed.
+     * @param source input stream serving {@link System#in} reads, original standard input if {@code null}
+     * @param target output stream receiving {@link System#out} writes
+     * @param errorTarget output stream receiving {@link System#err} writes
+     * @return redirection handle that restores previous targets when closed
+     */
+    static Redirection redirect(InputStream source, OutputStream target, OutputStream errorTarget) {
+        install();
+        InputStream previousIn = in.get();
+        OutputStream previousOut = out.get();
+        OutputStream previousErr = err.get();
+        in.set(source);
+        out.set(target);
+        err.set(errorTarget);
+        return () -> {
+            System.out.flush();
+            System.err.flush();
+            in.set(previousIn);
+            out.set(previousOut);
+            err.set(previousErr);
+        };
+    }
+
+    /**
+     * Wraps given task in order to execute it with standard streams redirection of the calling thread.
+     * @param task task to wrap
+     * @param <V> task result type
+     * @return task writing to current redirection, or given task if there is no current redirection
+     */
+    static <V> Callable<V> wrap(Callable<V> task) {
+        InputStream source = in.get();
+        OutputStream target = out.get();
+        OutputStream errorTarget = err.get();
+        if (source == null && target == null && errorTarget == null) {
+            return task;
+        }
+        return () -> {
+            try (Redirection ignored = redirect(source, target, errorTarget)) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * Returns where {@link System#out} writes are currently going for the current thread.
+     * @return current thread standard output
+     */
+    static OutputStream currentOut() {
+        OutputStream target = out.get();
+        if (target != null) {
+            return target;
+        }
+        return System.out == installedOut ? originalOut : System.out;
+    }
+
+    /**
+     * Returns where {@link System#err} writes are currently going for the current thread.
+     * @return current thread standard error
+     */
+    static OutputStream currentErr() {
+        OutputStream target = err.get();
+        if (target != null) {
+            return target;
+        }
+        return System.err == installedErr ? originalErr : System.err;
+    }
+
+    private static synchronized void install() {
+        // Someone else (like a test output capture) may have replaced streams since last installation
+        if (System.in != installedIn) {
+            originalIn = System.in;
+            installedIn = new RoutingInputStream(in, originalIn);
+            System.setIn(installedIn);
+        }
+        if (System.out != installedOut) {
+            originalOut = System.out;
+            installedOut = new PrintStream(new RoutingOutputStream(out, originalOut), true);
+            System.setOut(installedOut);
+        }
+        if (System.err != installedErr) {
+            originalErr = System.err;
+            installedErr = new PrintStream(new RoutingOutputStream(err, originalErr), true);
+            System.setErr(installedErr);
+        }
+    }
+
+    interface Redirection extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class RoutingOutputStream extends OutputStream {
+
+        private final ThreadLocal<OutputStream> target;
+
+        private final OutputStream fallback;
+
+        RoutingOutputStream(ThreadLocal<OutputStream> target, OutputStream fallback) {
+            this.target = target;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+
+        private OutputStream current() {
+            OutputStream stream = target.get();
+            return stream == null ? fallback : stream;
+        }
+    }
+
+    private static class RoutingInputStream extends InputStream {
+
+        private final ThreadLocal<InputStream> source;
+
+        private final InputStream fallback;
+
+        RoutingInputStream(ThreadLocal<InputStream> source, InputStream fallback) {
+            this.source = source;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return current().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return current().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            current().close();
+        }
+
+        private InputStream current() {
+            InputStream stream = source.get();
+            return stream == null ? fallback : stream;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class ArgumentFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void iterator_LinesAcrossWindows_ReadAllLines() throws IOException {
+        File file = write("first\r\n# comment\n\n  second  \nvery-long-line-larger-than-window\nlast");
+
+        assertThat(ArgumentFile.of(file.toPath(), 8))
+                .containsExactly("first", "second", "very-long-line-larger-than-window", "last");
+    }
+
+    @Test
+    public void iterator_EmptyFile_NoLines() throws IOException {
+        assertThat(ArgumentFile.of(write("").toPath())).isEmpty();
+    }
+
+    @Test
+    public void iterator_StoppedEarly_FileNotLeftOpen() throws IOException {
+        File fds = new File("/proc/self/fd");
+        Assume.assumeTrue("Open files are not listed", fds.isDirectory());
+        File file = write("first\nsecond\n");
+
+        assertThat(ArgumentFile.of(file.toPath()).iterator().next()).isEqualTo("first");
+
+        for (File fd : fds.listFiles()) {
+            assertThat(fd.getCanonicalFile()).isNotEqualTo(file.getCanonicalFile());
+        }
+    }
+
+    @Test
+    public void expand_ArgumentFile_InlineFileContent() throws IOException {
+        File file = write("1\n2\n3\n");
+
+        String[] args = ArgumentFile.expand("purge", "@" + file.getAbsolutePath(), "@@literal");
+
+        assertThat(args).containsExactly("purge", "1", "2", "3", "@literal");
+    }
+
+    @Test
+    public void expand_NoArgumentFile_SameArguments() {
+        String[] args = {"greeting", "world"};
+
+        assertThat(ArgumentFile.expand(args)).isSameAs(args);
+    }
+
+    private File write(String content) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
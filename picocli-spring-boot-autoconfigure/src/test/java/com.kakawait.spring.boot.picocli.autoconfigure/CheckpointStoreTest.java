@@ -0,0 +1,135 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void execute_Resume_SkipCompletedWork() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        BackfillCommand backfill = new BackfillCommand();
+        PicocliCommandLineRunner runner = createRunner(backfill, new CheckpointStore(directory, false, 1000));
+
+        backfill.failAt = 3;
+        assertThatThrownBy(() -> runner.execute("backfill", "--items", "5")).isInstanceOf(IllegalStateException.class);
+        backfill.failAt = 0;
+        runner.execute("backfill", "--items", "5", "--resume");
+
+        assertThat(backfill.processed).containsExactly(1, 2, 3, 4, 5);
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    @Test
+    public void execute_WithoutResume_StartFromScratch() throws Exception {
+        BackfillCommand backfill = new BackfillCommand();
+        PicocliCommandLineRunner runner = createRunner(backfill,
+                new CheckpointStore(temporaryFolder.getRoot().toPath(), false, 1000));
+
+        backfill.failAt = 3;
+        assertThatThrownBy(() -> runner.execute("backfill", "--items", "5")).isInstanceOf(IllegalStateException.class);
+        backfill.failAt = 0;
+        runner.execute("backfill", "--items", "5");
+
+        assertThat(backfill.processed).containsExactly(1, 2, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void execute_CommandDeclaringResumeOption_ResumeOptionGivenToCommand() throws Exception {
+        PicocliCommandLineRunner runner = createRunner(new BackfillCommand(),
+                new CheckpointStore(temporaryFolder.getRoot().toPath(), false, 1000));
+        SyncCommand sync = (SyncCommand) runner.getCommandLine().getSubcommands().get("sync").getCommand();
+
+        runner.execute("sync", "--resume");
+
+        assertThat(sync.resume).isTrue();
+    }
+
+    @Test
+    public void open_CompactedLogWithTornLine_ReturnLastValidToken() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        CheckpointStore store = new CheckpointStore(directory, true, 2);
+        String[] args = {"backfill"};
+
+        try (Checkpoint checkpoint = store.open(null, "backfill", args, false)) {
+            for (int i = 1; i <= 5; i++) {
+                checkpoint.save("token-" + i);
+            }
+        }
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(f -> f.toString().endsWith(".log")).findFirst().orElseThrow(AssertionError::new);
+        }
+        // Compacted on 3rd and 5th saves
+        assertThat(Files.readAllLines(log)).hasSize(1);
+        Files.write(log, "0000dead dG9ybg".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        try (Checkpoint checkpoint = store.open(null, "backfill", args, true)) {
+            assertThat(checkpoint.getToken()).isEqualTo("token-5");
+        }
+    }
+
+    private PicocliCommandLineRunner createRunner(BackfillCommand backfill, CheckpointStore store) {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("backfill", backfill);
+        cli.addSubcommand("sync", new SyncCommand());
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        runner.setCheckpointStore(store);
+        return runner;
+    }
+
+    @Command
+    static class MainCommand {
+    }
+
+    @Command(name = "sync")
+    static class SyncCommand {
+
+        @Option(names = "--resume")
+        boolean resume;
+    }
+
+    @Command(name = "backfill")
+    static class BackfillCommand extends PicocliCommand {
+
+        final List<Integer> processed = new ArrayList<>();
+
+        int failAt;
+
+        @Option(names = "--items")
+        int items;
+
+        @Override
+        public void run() {
+            String token = getCheckpoint().getToken();
+            for (int i = token == null ? 1 : Integer.parseInt(token) + 1; i <= items; i++) {
+                if (i == failAt) {
+                    throw new IllegalStateException("Failed at " + i);
+                }
+                processed.add(i);
+                getCheckpoint().save(Integer.toString(i));
+            }
+        }
+    }
+}
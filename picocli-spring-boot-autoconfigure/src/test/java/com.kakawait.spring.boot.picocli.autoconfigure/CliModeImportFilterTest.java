@@ -0,0 +1,125 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import picocli.CommandLine.Command;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CliModeImportFilterTest {
+
+    private static final String DATA_SOURCE = "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration";
+
+    private static final String WEB_MVC = "org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration";
+
+    private static final String[] CANDIDATES = {
+            PropertyPlaceholderAutoConfiguration.class.getName(), DATA_SOURCE, WEB_MVC};
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+    private final CliModeImportFilter filter = new CliModeImportFilter();
+
+    @Before
+    public void setUp() {
+        properties.put("picocli.cli-mode.enabled", "true");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        beanFactory.registerBeanDefinition("mainCommand", new AnnotatedGenericBeanDefinition(MainCommand.class));
+        beanFactory.registerBeanDefinition("dbCommand", new AnnotatedGenericBeanDefinition(DbCommand.class));
+        beanFactory.registerBeanDefinition("greetingCommand",
+                new AnnotatedGenericBeanDefinition(GreetingCommand.class));
+        filter.setBeanFactory(beanFactory);
+        filter.setBeanClassLoader(getClass().getClassLoader());
+        filter.setEnvironment(environment);
+    }
+
+    @Test
+    public void match_CommandWithRequirements_SkipOtherAutoConfigurations() {
+        invoke("db");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, false);
+    }
+
+    @Test
+    public void match_CommandWithoutRequirements_ApplyAllAutoConfigurations() {
+        invoke("greeting");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, true);
+    }
+
+    @Test
+    public void match_CommandNameAsOptionValue_ApplyAllAutoConfigurations() {
+        invoke("greeting", "--name", "db");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, true);
+    }
+
+    @Test
+    public void match_OnlyMainCommandWithRequirements_ApplyAllAutoConfigurationsForSubCommand() {
+        beanFactory.removeBeanDefinition("mainCommand");
+        beanFactory.registerBeanDefinition("mainCommand",
+                new AnnotatedGenericBeanDefinition(RequiringMainCommand.class));
+        invoke("greeting");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, true);
+    }
+
+    @Test
+    public void match_NestedCommandWithRequirements_AddParentRequirements() {
+        beanFactory.registerBeanDefinition("dbMigrateCommand",
+                new AnnotatedGenericBeanDefinition(DbCommand.MigrateCommand.class));
+        invoke("db", "migrate");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, true);
+    }
+
+    @Test
+    public void match_CliModeDisabled_ApplyAllAutoConfigurations() {
+        properties.put("picocli.cli-mode.enabled", "false");
+        invoke("db");
+
+        assertThat(filter.match(CANDIDATES, null)).containsExactly(true, true, true);
+    }
+
+    private void invoke(String... args) {
+        beanFactory.registerSingleton(CliModeImportFilter.APPLICATION_ARGUMENTS_BEAN_NAME,
+                new DefaultApplicationArguments(args));
+    }
+
+    @Command
+    static class MainCommand {
+    }
+
+    @Command
+    @CommandRequirements(names = DATA_SOURCE)
+    static class RequiringMainCommand {
+    }
+
+    @Command(name = "db")
+    @CommandRequirements(names = DATA_SOURCE)
+    static class DbCommand {
+
+        @Command(name = "migrate")
+        @CommandRequirements(names = WEB_MVC)
+        static class MigrateCommand {
+        }
+    }
+
+    @Command(name = "greeting")
+    static class GreetingCommand {
+    }
+}
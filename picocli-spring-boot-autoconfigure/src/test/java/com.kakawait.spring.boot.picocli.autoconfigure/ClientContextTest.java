@@ -0,0 +1,51 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class ClientContextTest {
+
+    private final ClientContext client = new ClientContext(Paths.get("/client"), Collections.emptyMap());
+
+    @After
+    public void tearDown() {
+        ClientContext.set(null);
+    }
+
+    @Test
+    public void current_PooledThreadCreatedDuringInvocation_LocalContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ClientContext.set(client);
+            // Pooled thread is created by the invoking thread
+            assertThat(executor.submit(ClientContext::current).get()).isNotSameAs(client);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void current_WrappedTaskOnPooledThread_ClientContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> null).get();
+            ClientContext.set(client);
+
+            assertThat(executor.submit(ClientContext.wrap(ClientContext::current)).get()).isSameAs(client);
+            // Context is restored once wrapped task finished
+            assertThat(executor.submit(ClientContext::current).get()).isNotSameAs(client);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import com.kakawait.spring.boot.picocli.autoconfigure.PicocliProperties.Audit.Fsync;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CommandAuditLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void destroy_RecordedInvocations_FlushEveryRecord() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("audit.log");
+        CommandAuditLog auditLog = new CommandAuditLog(file, Fsync.BATCH, 1, TimeUnit.SECONDS, 1024 * 1024, 1,
+                Pattern.compile("password"));
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("login", new LoginCommand());
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        runner.setAuditLog(auditLog);
+
+        runner.execute("login", "--password", "s3cret");
+        runner.execute("--unknown");
+        assertThatThrownBy(() -> runner.execute("login", "--fail")).isInstanceOf(IllegalStateException.class);
+        auditLog.destroy();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0))
+                .contains("\"path\":\"login\"", "\"args\":\"login --password ****\"", "\"exitStatus\":\"OK\"",
+                        "\"user\":", "\"durationMs\":")
+                .doesNotContain("s3cret");
+        assertThat(lines.get(1)).contains("\"path\":null", "\"exitStatus\":\"TERMINATION\"");
+        assertThat(lines.get(2)).contains("\"exitStatus\":\"ERROR\"", "\"error\":\"java.lang.IllegalStateException\"");
+    }
+
+    @Test
+    public void record_MaxFileSizeExceeded_Rotate() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("audit.log");
+        CommandAuditLog auditLog = new CommandAuditLog(file, Fsync.NEVER, 0, TimeUnit.SECONDS, 1, 2,
+                Pattern.compile("password"));
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(new CommandLine(new MainCommand()));
+        runner.setAuditLog(auditLog);
+
+        for (int i = 0; i < 4; i++) {
+            runner.execute("--run-" + i);
+            // Wait for the writer, thus every record is written in its own batch
+            while (!Files.exists(file) || !new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+                    .contains("--run-" + i)) {
+                Thread.sleep(5);
+            }
+        }
+        auditLog.destroy();
+
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).contains("--run-3");
+        assertThat(new String(Files.readAllBytes(Paths.get(file + ".1")), StandardCharsets.UTF_8))
+                .contains("--run-2");
+        assertThat(new String(Files.readAllBytes(Paths.get(file + ".2")), StandardCharsets.UTF_8))
+                .contains("--run-1");
+        assertThat(Paths.get(file + ".3")).doesNotExist();
+    }
+
+    @Command
+    static class MainCommand {
+    }
+
+    @Command(name = "login")
+    static class LoginCommand implements Runnable {
+
+        @Option(names = "--password")
+        String password;
+
+        @Option(names = "--fail")
+        boolean fail;
+
+        @Override
+        public void run() {
+            if (fail) {
+                throw new IllegalStateException("Login failed");
+            }
+        }
+    }
+}
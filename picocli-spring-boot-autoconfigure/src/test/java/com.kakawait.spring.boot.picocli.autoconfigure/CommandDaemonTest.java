@@ -0,0 +1,178 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CommandDaemonTest {
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private Path stateFile;
+
+    @Before
+    public void setUp() throws IOException {
+        stateFile = temporaryFolder.getRoot().toPath().resolve("daemon.properties");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void send_SuccessiveInvocations_StreamOutputWithFreshValues() throws Exception {
+        serve(10_000);
+        DaemonProtocol.State state = awaitState();
+
+        assertThat(launcher(FINGERPRINT, "piped input").send(state, "-u", "--stdin", "hello")).isEqualTo(0);
+        assertThat(launcher(FINGERPRINT, "").send(state, "world")).isEqualTo(0);
+
+        assertThat(out.toString("UTF-8")).isEqualTo(String.format("HELLO%nPIPED INPUT%nworld%n"));
+    }
+
+    @Test
+    public void send_ParseError_NonZeroExitCode() throws Exception {
+        serve(10_000);
+        DaemonProtocol.State state = awaitState();
+
+        assertThat(launcher(FINGERPRINT, "").send(state, "--unknown")).isEqualTo(DaemonProtocol.TERMINATION);
+    }
+
+    @Test
+    public void send_CommandFailure_OneLineErrorAndFailedExitCode() throws Exception {
+        serve(10_000);
+        DaemonProtocol.State state = awaitState();
+
+        assertThat(launcher(FINGERPRINT, "").send(state, "--fail")).isEqualTo(DaemonProtocol.FAILED);
+
+        assertThat(err.toString("UTF-8")).isEqualTo(
+                String.format("Error: java.lang.IllegalStateException: boom (see daemon log for details)%n"));
+    }
+
+    @Test
+    public void send_ArgumentLargerThan64KB_ReceivedUnchanged() throws Exception {
+        serve(10_000);
+        DaemonProtocol.State state = awaitState();
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, 'x');
+        String word = new String(chars);
+
+        assertThat(launcher(FINGERPRINT, "").send(state, word)).isEqualTo(0);
+
+        assertThat(out.toString("UTF-8")).isEqualTo(word + System.lineSeparator());
+    }
+
+    @Test
+    public void send_StaleClasspath_StopDaemon() throws Exception {
+        Future<?> daemon = serve(10_000);
+        DaemonProtocol.State state = awaitState();
+
+        assertThat(launcher("other", "").send(state, "hello")).isNull();
+
+        daemon.get(5, TimeUnit.SECONDS);
+        assertThat(stateFile).doesNotExist();
+    }
+
+    @Test
+    public void serve_IdleTimeout_StopDaemon() throws Exception {
+        Future<?> daemon = serve(100);
+
+        daemon.get(5, TimeUnit.SECONDS);
+        assertThat(stateFile).doesNotExist();
+    }
+
+    private Future<?> serve(int idleTimeout) {
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(new CommandLine(new EchoCommand()));
+        CommandDaemon daemon = new CommandDaemon(stateFile, idleTimeout, FINGERPRINT);
+        return executor.submit(() -> {
+            daemon.serve(runner);
+            return null;
+        });
+    }
+
+    private DaemonProtocol.State awaitState() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            if (Files.exists(stateFile)) {
+                return DaemonProtocol.State.read(stateFile);
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Daemon did not start");
+    }
+
+    private DaemonLauncher launcher(String fingerprint, String input) {
+        return new DaemonLauncher(stateFile, fingerprint,
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), new PrintStream(out, true),
+                new PrintStream(err, true));
+    }
+
+    @Command
+    static class EchoCommand implements Runnable {
+
+        @Option(names = "-u")
+        boolean upperCase;
+
+        @Option(names = "--stdin")
+        boolean stdin;
+
+        @Option(names = "--fail")
+        boolean fail;
+
+        @Parameters
+        List<String> words = new ArrayList<>();
+
+        @Override
+        public void run() {
+            if (fail) {
+                throw new IllegalStateException("boom");
+            }
+            List<String> lines = new ArrayList<>(words);
+            if (stdin) {
+                try {
+                    lines.add(StreamUtils.copyToString(System.in, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            lines.forEach(l -> System.out.println(upperCase ? l.toUpperCase() : l));
+        }
+    }
+}
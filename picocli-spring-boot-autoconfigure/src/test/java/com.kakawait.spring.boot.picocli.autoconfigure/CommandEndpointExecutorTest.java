@@ -0,0 +1,130 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CommandEndpointExecutorTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private CommandEndpointExecutor executor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    public void execute_SuccessiveInvocations_CaptureOutputAndRestoreOptions() throws Exception {
+        executor = createExecutor(Collections.emptyMap());
+
+        Map<String, Object> first = executor.execute("greeting", "-n", "World");
+        Map<String, Object> second = executor.execute("greeting");
+
+        assertThat(first)
+                .containsEntry("path", "greeting")
+                .containsEntry("exitStatus", ExitStatus.OK)
+                .containsEntry("out", "Hello World" + System.lineSeparator());
+        assertThat(second).containsEntry("out", "Hello nobody" + System.lineSeparator());
+    }
+
+    @Test
+    public void execute_CommandLimitReached_Rejected() throws Exception {
+        executor = createExecutor(Collections.singletonMap("block", 1));
+
+        CompletableFuture<Map<String, Object>> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute("block");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> executor.execute("block"))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("block");
+
+        release.countDown();
+        assertThat(blocked.get(10, TimeUnit.SECONDS)).containsEntry("exitStatus", ExitStatus.OK);
+        assertThat(executor.execute("block")).containsEntry("exitStatus", ExitStatus.OK);
+    }
+
+    @Test
+    public void submit_PendingExecutionCancelled_ReleasePermitAndQueue() throws Exception {
+        executor = createExecutor(Collections.singletonMap("greeting", 1));
+        CompletableFuture<Map<String, Object>> blocked = executor.submit("block");
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Map<String, Object>> pending = executor.submit("greeting");
+        assertThat(executor.getPendingCount()).isEqualTo(1);
+        pending.cancel(false);
+
+        assertThat(executor.getPendingCount()).isEqualTo(0);
+        CompletableFuture<Map<String, Object>> admitted = executor.submit("greeting");
+        release.countDown();
+        assertThat(blocked.get(10, TimeUnit.SECONDS)).containsEntry("exitStatus", ExitStatus.OK);
+        assertThat(admitted.get(10, TimeUnit.SECONDS)).containsEntry("out", "Hello nobody" + System.lineSeparator());
+    }
+
+    @SuppressWarnings("unchecked")
+    private CommandEndpointExecutor createExecutor(Map<String, Integer> limits) {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("greeting", new GreetingCommand());
+        cli.addSubcommand("block", new BlockCommand());
+        ObjectProvider<PicocliCommandLineRunner> runner = mock(ObjectProvider.class);
+        when(runner.getIfAvailable()).thenReturn(new PicocliCommandLineRunner(cli));
+        CommandEndpointExecutor executor = new CommandEndpointExecutor(runner, 4, 4, limits, 10, TimeUnit.SECONDS);
+        executor.afterSingletonsInstantiated();
+        return executor;
+    }
+
+    @Command
+    private static class MainCommand {}
+
+    @Command(name = "greeting")
+    private static class GreetingCommand implements Runnable {
+        @Option(names = "-n")
+        private String name = "nobody";
+
+        @Override
+        public void run() {
+            System.out.println("Hello " + name);
+        }
+    }
+
+    @Command(name = "block")
+    private class BlockCommand implements Runnable {
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CommandScopeTest {
+
+    private final CommandScope scope = new CommandScope();
+
+    @Test
+    public void get_WrappedTaskOnPooledThread_SameInstance() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // Initialize pooled thread outside of invocation
+        executor.submit(() -> null).get();
+        try (CommandScope.Invocation ignored = CommandScope.begin()) {
+            Object bean = scope.get("bean", Object::new);
+
+            assertThat(executor.submit(CommandScope.wrap(() -> scope.get("bean", Object::new))).get()).isSameAs(bean);
+            assertThat(executor.submit(() -> scope.getConversationId()).get()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void get_PooledThreadCreatedDuringInvocation_DoesNotSeeInvocation() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            try (CommandScope.Invocation ignored = CommandScope.begin()) {
+                // Pooled thread is created by the invoking thread
+                assertThat(executor.submit(() -> scope.getConversationId()).get()).isNull();
+            }
+            assertThat(executor.submit(() -> scope.getConversationId()).get()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void begin_PreviousInvocationClosedByOtherThread_StartsTopLevelInvocation() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CommandScope.Invocation invocation = CommandScope.begin();
+            executor.submit(invocation::close).get();
+
+            assertThatThrownBy(() -> scope.get("bean", Object::new)).hasMessageContaining("already finished");
+            try (CommandScope.Invocation ignored = CommandScope.begin()) {
+                assertThat(scope.get("bean", Object::new)).isNotNull();
+            }
+            assertThat(scope.getConversationId()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void get_NoInvocation_ThrowsIllegalStateException() {
+        try (CommandScope.Invocation ignored = CommandScope.begin()) {
+            scope.get("bean", Object::new);
+        }
+
+        assertThatThrownBy(() -> scope.get("bean", Object::new)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,177 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.test.rule.OutputCapture;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CommandWorkerPoolTest {
+
+    private static final String ROOT_VARIABLE = "CLI_ROOT";
+
+    @Rule
+    public OutputCapture outputCapture = new OutputCapture();
+
+    private final AtomicInteger forks = new AtomicInteger();
+
+    private final List<MainCommand> workerMainCommands = new CopyOnWriteArrayList<>();
+
+    private final CommandWorkerPool pool = new CommandWorkerPool(2, this::fork);
+
+    @After
+    public void tearDown() {
+        pool.destroy();
+    }
+
+    @Test
+    public void execute_ShardedCommand_MergeShardResultsAndReuseWorkers() throws Exception {
+        PicocliCommandLineRunner runner = createRunner(pool);
+        CommandDefaults defaults = CommandDefaults.of(runner.getCommandLines());
+
+        assertThat(runner.execute("sum", "1", "2", "3", "4", "5")).isEqualTo(ExitStatus.OK);
+        // Like daemon mode
+        defaults.restore();
+        assertThat(runner.execute("sum", "10", "20", "30")).isEqualTo(ExitStatus.OK);
+
+        assertThat(outputCapture.toString()).contains("total 15 from 2 shards", "total 60 from 2 shards");
+        assertThat(forks.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_FailedShard_ThrowException() throws Exception {
+        PicocliCommandLineRunner runner = createRunner(pool);
+
+        assertThatThrownBy(() -> runner.execute("sum", "1", "-1")).isInstanceOf(IllegalStateException.class)
+                .hasMessage("1 of 2 shards failed");
+        assertThat(outputCapture.toString()).contains("Negative number");
+    }
+
+    @Test
+    public void execute_ParentCommandOptions_ForwardedToShards() throws Exception {
+        PicocliCommandLineRunner runner = createRunner(pool);
+
+        assertThat(runner.execute("--verbose", "sum", "1", "2", "3")).isEqualTo(ExitStatus.OK);
+
+        assertThat(outputCapture.toString()).contains("total 6 from 2 shards");
+        assertThat(workerMainCommands).hasSize(2).allMatch(c -> c.verbose);
+    }
+
+    @Test
+    public void execute_OtherRootWithoutArgumentSelection_ShardsExecutedOnSameRoot() throws Exception {
+        PicocliCommandLineRunner runner = createRunner(pool);
+
+        ClientContext.set(new ClientContext(Paths.get(""), Collections.singletonMap(ROOT_VARIABLE, "other")));
+        try {
+            assertThat(runner.execute("total", "1", "2", "3")).isEqualTo(ExitStatus.OK);
+        } finally {
+            ClientContext.set(null);
+        }
+
+        assertThat(outputCapture.toString()).contains("total 6 from 2 shards");
+    }
+
+    private CommandWorkerPool.Worker fork(int index) throws IOException {
+        forks.incrementAndGet();
+        // Each worker owns its command instances, like a forked JVM
+        PicocliCommandLineRunner runner = createRunner(null);
+        workerMainCommands.add((MainCommand) runner.getCommandLine().getCommand());
+        PipedOutputStream requests = new PipedOutputStream();
+        PipedInputStream workerRequests = new PipedInputStream(requests);
+        PipedInputStream responses = new PipedInputStream();
+        PipedOutputStream workerResponses = new PipedOutputStream(responses);
+        Thread thread = new Thread(() -> {
+            try {
+                new CommandWorker().serve(runner, workerRequests, workerResponses);
+                workerResponses.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "worker-" + index);
+        thread.setDaemon(true);
+        thread.start();
+        return new CommandWorkerPool.Worker(responses, requests, () -> {});
+    }
+
+    private PicocliCommandLineRunner createRunner(CommandWorkerPool pool) {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("sum", new SumCommand());
+        CommandLine other = new CommandLine(new MainCommand());
+        other.addSubcommand("total", new SumCommand());
+        Map<String, CommandLine> roots = new LinkedHashMap<>();
+        roots.put("main", cli);
+        roots.put("other", other);
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        runner.setRoots(new CommandRoots(roots, "main", ROOT_VARIABLE, false));
+        runner.setWorkerPool(pool);
+        return runner;
+    }
+
+    @Command
+    static class MainCommand {
+
+        @Option(names = "--verbose")
+        boolean verbose;
+    }
+
+    @Command(name = "sum")
+    static class SumCommand implements Runnable, ShardedCommand {
+
+        @Parameters
+        int[] numbers = new int[0];
+
+        @Override
+        public void run() {
+            if (Arrays.stream(numbers).anyMatch(n -> n < 0)) {
+                throw new IllegalArgumentException("Negative number");
+            }
+            System.out.println(Arrays.stream(numbers).sum());
+        }
+
+        @Override
+        public List<String[]> shard(int workers) {
+            List<String[]> shards = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int shard = i;
+                shards.add(IntStream.range(0, numbers.length)
+                        .filter(n -> n % workers == shard)
+                        .mapToObj(n -> Integer.toString(numbers[n]))
+                        .toArray(String[]::new));
+            }
+            return shards;
+        }
+
+        @Override
+        public ExitStatus merge(List<ShardResult> results) {
+            if (results.stream().anyMatch(ShardResult::isFailed)) {
+                return ShardedCommand.super.merge(results);
+            }
+            int total = results.stream().mapToInt(r -> Integer.parseInt(r.getOutput().trim())).sum();
+            System.out.println("total " + total + " from " + results.size() + " shards");
+            return ExitStatus.OK;
+        }
+    }
+}
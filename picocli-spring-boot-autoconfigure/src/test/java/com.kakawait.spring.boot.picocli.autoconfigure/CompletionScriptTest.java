@@ -0,0 +1,106 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class CompletionScriptTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generate_CommandTree_IndexEveryPath() {
+        String script = CompletionScript.generate(cli(), "my-cli");
+
+        assertThat(script)
+                .contains("\"\") echo \"flyway\" ;;")
+                .contains("\" flyway\") echo \"migrate\" ;;")
+                .contains("\" flyway migrate\") echo \"--dry-run\" ;;")
+                .contains("complete -o default -F _my_cli my-cli")
+                .doesNotContain("--secret");
+    }
+
+    @Test
+    public void generate_Bash_CompleteNestedCommandOptions() throws Exception {
+        File script = script();
+
+        assertThat(complete("bash", script, "my-cli", "fl")).isEqualTo("flyway");
+        assertThat(complete("bash", script, "my-cli", "flyway", "migrate", "--d")).isEqualTo("--dry-run");
+    }
+
+    @Test
+    public void generate_Zsh_CompleteNestedCommandOptions() throws Exception {
+        File script = script();
+
+        assertThat(complete("zsh", script, "my-cli", "fl")).isEqualTo("flyway");
+        assertThat(complete("zsh", script, "my-cli", "flyway", "migrate", "--d")).isEqualTo("--dry-run");
+    }
+
+    private File script() throws IOException {
+        File script = temporaryFolder.newFile();
+        Files.write(script.toPath(), CompletionScript.generate(cli(), "my-cli").getBytes(StandardCharsets.UTF_8));
+        return script;
+    }
+
+    private String complete(String shell, File script, String... words) throws IOException, InterruptedException {
+        String completion = shell.equals("zsh")
+                // Calls function like zsh bashcompinit does, through its compgen emulation
+                ? String.format("compgen -F _my_cli -- %s", words[words.length - 1])
+                : "_my_cli; echo \"${COMPREPLY[*]}\"";
+        // Like interactive zsh sessions, completion system is initialized (without dump file) before sourcing script
+        String setup = shell.equals("zsh") ? "autoload -U compinit && compinit -u -D; " : "";
+        String command = String.format("%ssource %s; COMP_WORDS=(%s); COMP_CWORD=%d; %s", setup,
+                script.getAbsolutePath(), String.join(" ", words), words.length - 1, completion);
+        Process process;
+        try {
+            process = new ProcessBuilder(shell, "-c", command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            Assume.assumeNoException(shell + " is not available", e);
+            throw e;
+        }
+        String output = StreamUtils.copyToString(process.getInputStream(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+        return output.trim();
+    }
+
+    private CommandLine cli() {
+        CommandLine cli = new CommandLine(new MainCommand());
+        CommandLine flyway = new CommandLine(new FlywayCommand());
+        flyway.addSubcommand("migrate", new CommandLine(new MigrateCommand()));
+        cli.addSubcommand("flyway", flyway);
+        return cli;
+    }
+
+    @Command
+    static class MainCommand {
+        @Option(names = "--secret", hidden = true)
+        boolean secret;
+    }
+
+    @Command(name = "flyway")
+    static class FlywayCommand {
+    }
+
+    @Command(name = "migrate")
+    static class MigrateCommand {
+        @Option(names = "--dry-run")
+        boolean dryRun;
+    }
+}
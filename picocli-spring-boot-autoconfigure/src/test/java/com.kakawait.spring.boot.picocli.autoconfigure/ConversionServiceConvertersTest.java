@@ -0,0 +1,98 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Test;
+import org.springframework.core.convert.support.DefaultConversionService;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class ConversionServiceConvertersTest {
+
+    @Test
+    public void register_UnknownTypes_ConvertUsingConversionService() {
+        ConvertedCommand command = new ConvertedCommand();
+        CommandLine cli = new CommandLine(command);
+
+        ConversionServiceConverters.register(cli, DefaultConversionService::new);
+        cli.parse("--locale", "fr_FR", "--day", "MONDAY", "--currency", "EUR", "USD", "--", "a1", "b2");
+
+        assertThat(command.locale).isEqualTo(Locale.FRANCE);
+        assertThat(command.currencies).containsExactly(Currency.getInstance("EUR"), Currency.getInstance("USD"));
+        assertThat(command.day).isEqualTo(DayOfWeek.MONDAY);
+        assertThat(command.codes).extracting(c -> c.value).containsExactly("a1", "b2");
+    }
+
+    @Test
+    public void register_KnownTypes_NotRegistered() {
+        AtomicInteger lookups = new AtomicInteger();
+        CommandLine cli = new CommandLine(new ConvertedCommand());
+        cli.addSubcommand("known", new CommandLine(new KnownCommand()));
+
+        assertThat(ConversionServiceConverters.register(cli, () -> {
+            lookups.incrementAndGet();
+            return new DefaultConversionService();
+        })).containsExactlyInAnyOrder(Locale.class, Currency.class, Code.class);
+        assertThat(lookups.get()).isEqualTo(1);
+
+        assertThat(ConversionServiceConverters.register(new CommandLine(new KnownCommand()), () -> {
+            lookups.incrementAndGet();
+            return new DefaultConversionService();
+        })).isEmpty();
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Command
+    static class ConvertedCommand {
+
+        @Option(names = "--locale")
+        Locale locale;
+
+        @Option(names = "--currency")
+        Currency[] currencies;
+
+        @Option(names = "--day")
+        DayOfWeek day;
+
+        @Parameters(type = Code.class)
+        List<Code> codes = new ArrayList<>();
+    }
+
+    @Command
+    static class KnownCommand {
+
+        @Option(names = "--count")
+        int count;
+
+        @Option(names = "--names")
+        List<String> names;
+
+        @Parameters
+        DayOfWeek[] days;
+    }
+
+    static class Code {
+
+        private final String value;
+
+        private Code(String value) {
+            this.value = value;
+        }
+
+        public static Code valueOf(String value) {
+            return new Code(value);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class FlightRecorderEventsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void execute_RecordingEnabled_EmitEvents() throws Exception {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("sub", new SubCommand());
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        Path file = temporaryFolder.getRoot().toPath().resolve("picocli.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.kakawait.picocli.PicocliParse").withoutThreshold();
+            recording.enable("com.kakawait.picocli.PicocliHelpResolution").withoutThreshold();
+            recording.enable("com.kakawait.picocli.PicocliCommandExecution").withoutThreshold();
+            recording.start();
+            runner.execute("sub");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+                .stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.kakawait.picocli."))
+                .collect(Collectors.toList());
+        assertThat(events)
+                .extracting(e -> e.getEventType().getName(), e -> e.getString("path"))
+                .containsExactly(
+                        tuple("com.kakawait.picocli.PicocliParse", "sub"),
+                        tuple("com.kakawait.picocli.PicocliHelpResolution", "sub"),
+                        tuple("com.kakawait.picocli.PicocliCommandExecution", ""),
+                        tuple("com.kakawait.picocli.PicocliCommandExecution", "sub"));
+        assertThat(events.get(3).getString("exitStatus")).isEqualTo("OK");
+        assertThat(events.get(3).getClass("commandClass").getName()).isEqualTo(SubCommand.class.getName());
+    }
+
+    @Command
+    private static class MainCommand {}
+
+    @Command(name = "sub")
+    private static class SubCommand implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.test.rule.OutputCapture;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class HealthCommandTest {
+
+    @Rule
+    public OutputCapture outputCapture = new OutputCapture();
+
+    @Test
+    public void call_UpIndicators_PrintsAggregatedStatus() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dbHealthIndicator", indicator(0, Health.up().withDetail("database", "H2")));
+        beanFactory.registerSingleton("diskSpaceHealthIndicator", indicator(0, Health.up()));
+
+        HealthCommand.ExitCode exitCode = new HealthCommand.ExitCode();
+
+        assertThat(new HealthCommand(beanFactory, 1000, exitCode).call()).isEqualTo(ExitStatus.OK);
+
+        assertThat(exitCode.getExitCode()).isEqualTo(0);
+
+        assertThat(outputCapture.toString())
+                .startsWith("UP")
+                .contains("  db: UP {database=H2}")
+                .contains("  diskSpace: UP {}");
+    }
+
+    @Test
+    public void call_SlowIndicators_EvaluatesConcurrentlyAndTimesOut() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("aHealthIndicator", indicator(300, Health.up()));
+        beanFactory.registerSingleton("bHealthIndicator", indicator(300, Health.up()));
+        beanFactory.registerSingleton("hangingHealthIndicator", indicator(60_000, Health.up()));
+
+        HealthCommand command = new HealthCommand(beanFactory, 500, new HealthCommand.ExitCode());
+
+        long start = System.nanoTime();
+        assertThat(command.call()).isEqualTo(ExitStatus.TERMINATION);
+
+        assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+        assertThat(outputCapture.toString())
+                .startsWith("DOWN")
+                .contains("  a: UP")
+                .contains("  b: UP")
+                .contains("  hanging: DOWN {error=Timed out after 500ms}");
+    }
+
+    @Test
+    public void call_FailingIndicatorNotSelected_IsNotEvaluated() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dbHealthIndicator", indicator(0, Health.up()));
+        beanFactory.registerSingleton("failingHealthIndicator", (HealthIndicator) () -> {
+            throw new IllegalStateException("boom");
+        });
+        HealthCommand command = new HealthCommand(beanFactory, 1000, new HealthCommand.ExitCode());
+
+        command.names = new String[]{"db"};
+        assertThat(command.call()).isEqualTo(ExitStatus.OK);
+
+        command.names = new String[]{};
+        assertThat(command.call()).isEqualTo(ExitStatus.TERMINATION);
+        assertThat(outputCapture.toString()).contains("  failing: DOWN {error=java.lang.IllegalStateException: boom}");
+    }
+
+    @Test
+    public void call_HyphenatedName_SelectsIndicator() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dbHealthIndicator", indicator(0, Health.up()));
+        beanFactory.registerSingleton("diskSpaceHealthIndicator", indicator(0, Health.up()));
+        HealthCommand command = new HealthCommand(beanFactory, 1000, new HealthCommand.ExitCode());
+
+        command.names = new String[]{"disk-space"};
+        assertThat(command.call()).isEqualTo(ExitStatus.OK);
+
+        assertThat(outputCapture.toString()).contains("  diskSpace: UP").doesNotContain("  db: UP");
+    }
+
+    @Test
+    public void execute_UnknownIndicator_PrintsUsage() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dbHealthIndicator", indicator(0, Health.up()));
+        PicocliCommandLineRunner runner = createRunner(beanFactory, new HealthCommand.ExitCode());
+
+        assertThat(runner.execute("health", "unknown")).isEqualTo(ExitStatus.TERMINATION);
+
+        assertThat(outputCapture.toString())
+                .contains("Unknown health indicator 'unknown', expected one of [db]")
+                .contains("Usage: health");
+    }
+
+    @Test
+    public void execute_Help_PrintsUsageAndKeepsExitCode() throws Exception {
+        HealthCommand.ExitCode exitCode = new HealthCommand.ExitCode();
+        PicocliCommandLineRunner runner = createRunner(new DefaultListableBeanFactory(), exitCode);
+
+        assertThat(runner.execute("health", "-h")).isEqualTo(ExitStatus.TERMINATION);
+
+        assertThat(exitCode.getExitCode()).isEqualTo(0);
+        assertThat(outputCapture.toString()).contains("Usage: health");
+    }
+
+    @Test
+    public void run_DownIndicator_UnhealthyExitCode() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("dbHealthIndicator", indicator(0, Health.down()));
+        HealthCommand.ExitCode exitCode = new HealthCommand.ExitCode();
+        PicocliCommandLineRunner runner = createRunner(beanFactory, exitCode);
+
+        runner.run("health");
+
+        assertThat(exitCode.getExitCode()).isEqualTo(HealthCommand.ExitCode.UNHEALTHY);
+        assertThat(outputCapture.toString()).startsWith("DOWN");
+    }
+
+    private static PicocliCommandLineRunner createRunner(DefaultListableBeanFactory beanFactory,
+            HealthCommand.ExitCode exitCode) {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("health", new CommandLine(new HealthCommand(beanFactory, 1000, exitCode)));
+        return new PicocliCommandLineRunner(cli);
+    }
+
+    private static HealthIndicator indicator(long delay, Health.Builder health) {
+        return () -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return health.build();
+        };
+    }
+
+    @Command
+    static class MainCommand {
+    }
+}
@@ -5,15 +5,26 @@ import org.assertj.core.api.iterable.Extractor;
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
 import picocli.CommandLine;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -128,6 +139,69 @@ public class PicocliAutoConfigurationTest {
         assertThat(runner.getCommandLine().getSubcommands()).hasSize(0);
     }
 
+    @Test
+    public void autoConfiguration_MultipleRoots_SelectRootFromFirstArgument() throws Exception {
+        load(new String[]{"picocli.roots.default-root=deploy", "picocli.roots.argument-selection=true"},
+                MultipleRootsConfiguration.class);
+        PicocliCommandLineRunner runner = context.getBean(PicocliCommandLineRunner.class);
+
+        assertThat(runner.getCommandLine().getCommand()).isInstanceOf(MultipleRootsConfiguration.DeployTool.class);
+        assertThat(runner.getCommandLines())
+                .hasSize(2)
+                .allSatisfy(c -> assertThat(c.getSubcommands()).containsOnlyKeys("status", "version"));
+
+        runner.run("backup", "status");
+        runner.run("status");
+        runner.run("backup", "version");
+
+        outputCapture.expect(matchesPattern(
+                Pattern.compile(".*Backup status.*Deploy status.*Version.*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void autoConfiguration_MultipleRootsWithoutArgumentSelection_RootNameIsNotReserved() throws Exception {
+        load(new String[]{"picocli.roots.default-root=deploy"}, MultipleRootsConfiguration.class);
+        PicocliCommandLineRunner runner = context.getBean(PicocliCommandLineRunner.class);
+
+        runner.run("backup", "status");
+        runner.run("status");
+
+        assertThat(outputCapture.toString()).doesNotContain("Backup status").contains("Deploy status");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void autoConfiguration_EndpointEnabled_DescribeAndExecuteCommands() throws Exception {
+        load(new String[]{"picocli.endpoint.enabled=true", "picocli.roots.default-root=deploy",
+                "picocli.roots.argument-selection=true"}, MultipleRootsConfiguration.class);
+        PicocliEndpoint endpoint = context.getBean(PicocliEndpoint.class);
+
+        assertThat((Map<String, Object>) endpoint.invoke().get("roots")).containsOnlyKeys("deploy", "backup");
+        assertThat(endpoint.execute("backup", "status"))
+                .containsEntry("path", "backup status")
+                .containsEntry("out", "Backup status" + System.lineSeparator());
+        assertThat(context.getBean(PicocliMvcEndpoint.class).getDelegate()).isSameAs(endpoint);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void autoConfiguration_EndpointEnabled_MvcEndpointExecuteAsynchronously() throws Exception {
+        load(new String[]{"picocli.endpoint.enabled=true", "picocli.roots.default-root=deploy"},
+                MultipleRootsConfiguration.class);
+        PicocliMvcEndpoint endpoint = context.getBean(PicocliMvcEndpoint.class);
+
+        Object response = endpoint.execute(Collections.singletonMap("args", Collections.singletonList("status")));
+
+        assertThat(response).isInstanceOf(DeferredResult.class);
+        DeferredResult<Object> result = (DeferredResult<Object>) response;
+        for (int i = 0; i < 100 && !result.hasResult(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat((Map<String, Object>) result.getResult())
+                .containsEntry("path", "status")
+                .containsEntry("out", "Deploy status" + System.lineSeparator());
+    }
+
     @Test
     public void autoConfiguration_WithPicocliConfigurerAdapter_Apply() {
         load(SimpleConfiguration.class, CustomPicocliConfigurerAdapter.class);
@@ -145,6 +219,37 @@ public class PicocliAutoConfigurationTest {
         assertThat(runner.getCommandLine().getSubcommands()).containsKeys("¯\\_(ツ)_/¯");
     }
 
+    @Test
+    public void autoConfiguration_CommandScopedBean_NewInstancePerInvocation() throws Exception {
+        CommandScopeConfiguration.Buffer.destroyed.set(0);
+        load(CommandScopeConfiguration.class);
+        PicocliCommandLineRunner runner = context.getBean(PicocliCommandLineRunner.class);
+
+        runner.run("buffered");
+        runner.run("buffered");
+
+        assertThat(CommandScopeConfiguration.Buffer.destroyed.get()).isEqualTo(2);
+        outputCapture.expect(matchesPattern(Pattern.compile(".*\\[1\\].*\\[1\\].*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void autoConfiguration_HealthDown_UnhealthyApplicationExitCode() throws Exception {
+        load(new String[]{"picocli.health.enabled=true"}, SimpleConfiguration.class, DownHealthConfiguration.class);
+
+        context.getBean(PicocliCommandLineRunner.class).run("health");
+
+        assertThat(SpringApplication.exit(context)).isEqualTo(HealthCommand.ExitCode.UNHEALTHY);
+    }
+
+    @Test
+    public void autoConfiguration_HealthHelp_ZeroApplicationExitCode() throws Exception {
+        load(new String[]{"picocli.health.enabled=true"}, SimpleConfiguration.class, DownHealthConfiguration.class);
+
+        context.getBean(PicocliCommandLineRunner.class).run("health", "-h");
+
+        assertThat(SpringApplication.exit(context)).isEqualTo(0);
+    }
+
     @Configuration
     static class EmptyConfiguration {
     }
@@ -224,6 +329,47 @@ public class PicocliAutoConfigurationTest {
         static class MainCommand2 {}
     }
 
+    @Configuration
+    static class MultipleRootsConfiguration {
+
+        @Component("deploy")
+        @Command
+        static class DeployTool {
+
+            @Component
+            @Command(name = "status")
+            static class StatusCommand implements Runnable {
+                @Override
+                public void run() {
+                    System.out.println("Deploy status");
+                }
+            }
+        }
+
+        @Component("backup")
+        @Command
+        static class BackupTool {
+
+            @Component
+            @Command(name = "status")
+            static class StatusCommand implements Runnable {
+                @Override
+                public void run() {
+                    System.out.println("Backup status");
+                }
+            }
+        }
+
+        @Component
+        @Command(name = "version")
+        static class VersionCommand implements Runnable {
+            @Override
+            public void run() {
+                System.out.println("Version");
+            }
+        }
+    }
+
     @Configuration
     static class CustomPicocliConfigurerAdapter extends PicocliConfigurerAdapter {
         @Override
@@ -243,8 +389,68 @@ public class PicocliAutoConfigurationTest {
         static class BasicCommand {}
     }
 
+    @Configuration
+    static class DownHealthConfiguration {
+
+        @Bean
+        HealthIndicator dbHealthIndicator() {
+            return () -> Health.down().build();
+        }
+    }
+
+    @Configuration
+    static class CommandScopeConfiguration {
+
+        @Bean
+        @CommandScoped
+        Buffer buffer() {
+            return new Buffer();
+        }
+
+        @Component
+        @Command(name = "buffered")
+        static class BufferedCommand implements Runnable {
+
+            private final Buffer buffer;
+
+            BufferedCommand(Buffer buffer) {
+                this.buffer = buffer;
+            }
+
+            @Override
+            public void run() {
+                buffer.add("1");
+                System.out.println(buffer.getValues());
+            }
+        }
+
+        static class Buffer implements DisposableBean {
+            static final AtomicInteger destroyed = new AtomicInteger();
+
+            private final List<String> values = new ArrayList<>();
+
+            void add(String value) {
+                values.add(value);
+            }
+
+            List<String> getValues() {
+                return values;
+            }
+
+            @Override
+            public void destroy() {
+                destroyed.incrementAndGet();
+            }
+        }
+    }
+
     private void load(Class<?>... configs) {
+        load(new String[0], configs);
+    }
+
+    private void load(String[] properties, Class<?>... configs) {
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        EnvironmentTestUtils.addEnvironment(context, properties);
         context.register(configs);
         context.register(PicocliAutoConfiguration.class);
         context.refresh();
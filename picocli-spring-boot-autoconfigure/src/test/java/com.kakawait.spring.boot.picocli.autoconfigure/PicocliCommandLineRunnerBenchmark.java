@@ -0,0 +1,82 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch (help checks and commands execution once arguments are parsed) benchmark, run {@link #main(String[])}
+ * from test classpath and check {@code gc.alloc.rate.norm} that must stay close to zero bytes per operation.
+ *
+ * @author Thibaud Leprêtre
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PicocliCommandLineRunnerBenchmark {
+
+    private static final String[] ARGS = {"sub"};
+
+    private PicocliCommandLineRunner runner;
+
+    private List<CommandLine> commands;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PicocliCommandLineRunnerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("sub", new CommandLine(new SubCommand()));
+        runner = new PicocliCommandLineRunner(cli);
+        commands = cli.parse(ARGS);
+    }
+
+    @Benchmark
+    public ExitStatus dispatch() throws Exception {
+        return runner.dispatch(commands, ARGS);
+    }
+
+    @Command
+    static class MainCommand extends PicocliCommand {
+        @Option(names = "-h", help = true)
+        boolean help;
+    }
+
+    @Command(name = "sub")
+    static class SubCommand implements Runnable {
+        @Option(names = "-h", help = true)
+        boolean help;
+
+        int count;
+
+        @Override
+        public void run() {
+            count++;
+        }
+    }
+}
@@ -10,18 +10,24 @@ import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.boot.test.rule.OutputCapture;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
@@ -279,6 +285,172 @@ public class PicocliCommandLineRunnerTest {
         verifyNoMoreInteractions(cli);
     }
 
+    @Test
+    public void run_CacheableCommand_ReplayCachedOutput() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        PicocliCommand mainCommand = makePicocliCommand("main", () -> {});
+        Runnable subCommand = makeRunnableCommand("subcommand",
+                () -> System.out.println("Sub runnable command #" + counter.incrementAndGet()));
+        List<CommandLine> commandLines = Arrays.asList(new CommandLine(mainCommand), new CommandLine(subCommand));
+
+        when(cli.parse(any())).thenReturn(commandLines);
+        when(cli.getCommand()).thenReturn(mainCommand);
+
+        runner.setResultCache(new CommandResultCache(Collections.singletonList("subcommand"), 1, TimeUnit.MINUTES,
+                10, null));
+        runner.run("subcommand");
+        runner.run("subcommand ");
+
+        assertThat(counter.get()).isEqualTo(1);
+        outputCapture.expect(matchesPattern(
+                Pattern.compile(".*Sub runnable command #1.*Sub runnable command #1.*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void run_LazyCommand_ResolveTargetOnInvocationOnly() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        CommandLine commandLine = new CommandLine(new EmptyCommand());
+        new PicocliConfigurerAdapter() {
+            @Override
+            public void configure(CommandLine commandLine) {
+                addLazySubcommand(commandLine, "lazy", Runnable.class, () -> {
+                    int resolution = counter.incrementAndGet();
+                    return () -> System.out.println("Lazy target #" + resolution);
+                });
+            }
+        }.configure(commandLine);
+
+        assertThat(counter.get()).as("resolutions during tree build").isEqualTo(0);
+
+        new PicocliCommandLineRunner(commandLine).run("lazy");
+
+        assertThat(counter.get()).isEqualTo(1);
+        outputCapture.expect(matchesPattern(Pattern.compile(".*Lazy target #1.*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void addLazySubcommand_TargetTypeNotExecutable_ThrowException() {
+        CommandLine commandLine = new CommandLine(new EmptyCommand());
+        PicocliConfigurerAdapter configurer = new PicocliConfigurerAdapter() {
+            @Override
+            public void configure(CommandLine commandLine) {
+                addLazySubcommand(commandLine, "lazy", String.class, () -> "Lazy target");
+            }
+        };
+
+        assertThatThrownBy(() -> configurer.configure(commandLine))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Lazy command target type java.lang.String must implement Runnable or Callable");
+        assertThat(commandLine.getSubcommands()).isEmpty();
+    }
+
+    @Test
+    public void addLazySubcommand_BeanNotExecutable_ThrowException() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("report", "Report");
+
+        assertThatThrownBy(() -> LazyPicocliCommand.of(beanFactory, "report"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Lazy command bean 'report' of type java.lang.String must implement Runnable or Callable");
+    }
+
+    @Test
+    public void run_ParsePlanCacheHit_SkipParsingAndApplyValues() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        CountCommand command = new CountCommand();
+        CommandLine commandLine = new CommandLine(new EmptyCommand());
+        commandLine.addSubcommand("count", command);
+        commandLine.registerConverter(Count.class, v -> {
+            conversions.incrementAndGet();
+            return new Count(Integer.parseInt(v));
+        });
+        ParsePlanCache parsePlanCache = new ParsePlanCache(10);
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(commandLine);
+        runner.setParsePlanCache(parsePlanCache);
+
+        runner.run("count", "-c", "3");
+        command.count = null;
+        runner.run("count", "-c", "3");
+        runner.run("count", "-c", "4");
+
+        assertThat(conversions.get()).isEqualTo(2);
+        assertThat(parsePlanCache.size()).isEqualTo(2);
+        outputCapture.expect(matchesPattern(Pattern.compile(".*Count 3.*Count 3.*Count 4.*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void run_ParsePlanCacheOtherClientWorkingDirectory_ParseAgain() throws Exception {
+        CountCommand command = new CountCommand();
+        CommandLine commandLine = new CommandLine(new EmptyCommand());
+        commandLine.addSubcommand("count", command);
+        // Like ArgumentFile, value depends on client working directory
+        commandLine.registerConverter(Count.class,
+                v -> new Count(ClientContext.current().resolve(v).getNameCount()));
+        ParsePlanCache parsePlanCache = new ParsePlanCache(10);
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(commandLine);
+        runner.setParsePlanCache(parsePlanCache);
+
+        for (String workingDirectory : new String[]{"/a", "/a/b"}) {
+            ClientContext.set(new ClientContext(Paths.get(workingDirectory), Collections.emptyMap()));
+            try {
+                runner.run("count", "-c", "file");
+            } finally {
+                ClientContext.set(null);
+            }
+        }
+
+        assertThat(parsePlanCache.size()).isEqualTo(2);
+        outputCapture.expect(matchesPattern(Pattern.compile(".*Count 2.*Count 3.*", Pattern.DOTALL)));
+    }
+
+    @Test
+    public void run_CommandHandler_InjectParametersAndStopOnTermination() throws Exception {
+        HandlerCommand mainCommand = new HandlerCommand();
+        Runnable subCommand = makeRunnableCommand("subcommand", () -> System.out.println("Ignore me..."));
+        CommandLine mainCommandLine = new CommandLine(mainCommand);
+        List<CommandLine> commandLines = Arrays.asList(mainCommandLine, new CommandLine(subCommand));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("greeter", new Greeter("Hello"));
+
+        when(cli.parse(any())).thenReturn(commandLines);
+        when(cli.getCommand()).thenReturn(mainCommand);
+
+        runner.setBeanFactory(beanFactory);
+        runner.run("subcommand");
+
+        assertThat(mainCommand.context).isSameAs(mainCommandLine);
+        assertThat(mainCommand.commands).isSameAs(commandLines);
+        outputCapture.expect(matchesPattern(Pattern.compile(".*Hello World!\\n*", Pattern.DOTALL)));
+        outputCapture.expect(not(matchesPattern(Pattern.compile(".*Ignore me\\.\\.\\..*", Pattern.DOTALL))));
+    }
+
+    @Test
+    public void run_TracingEnabled_ExportSpanPerExecutedCommand() throws Exception {
+        List<CommandSpan> spans = new ArrayList<>();
+        CommandLine commandLine = new CommandLine(new EmptyCommand());
+        commandLine.addSubcommand("login", new LoginCommand());
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(commandLine);
+        runner.setTracer(new CommandTracer(spans::add, Pattern.compile(".*password.*")));
+
+        runner.run("login", "--password", "s3cret");
+
+        assertThat(spans).extracting(CommandSpan::getName).containsExactly("main", "login", "picocli");
+        CommandSpan root = spans.get(2);
+        assertThat(root.getParentSpanId()).isNull();
+        assertThat(root.getTraceId()).matches("[0-9a-f]{32}");
+        assertThat(root.getAttributes())
+                .containsEntry(CommandSpan.COMMAND_PATH, "login")
+                .containsEntry(CommandSpan.COMMAND_ARGS, "login --password ****")
+                .containsEntry(CommandSpan.EXIT_STATUS, "OK");
+        assertThat(spans.subList(0, 2)).allSatisfy(span -> {
+            assertThat(span.getTraceId()).isEqualTo(root.getTraceId());
+            assertThat(span.getParentSpanId()).isEqualTo(root.getSpanId());
+            assertThat(span.getStatus()).isEqualTo(CommandSpan.Status.OK);
+            assertThat(span.getDuration()).isGreaterThanOrEqualTo(0);
+        });
+        assertThat(spans.get(1).getAttributes().get(CommandSpan.COMMAND_ARGS)).doesNotContain("s3cret");
+    }
+
     private AnnotationDescription getCommandAnnotationDescription(String commandName) {
         return AnnotationDescription
                 .Builder
@@ -399,4 +571,57 @@ public class PicocliCommandLineRunnerTest {
 
     @Command
     private static class EmptyCommand {}
+
+    @Command(name = "count")
+    private static class CountCommand implements Runnable {
+        @Option(names = "-c")
+        private Count count;
+
+        @Override
+        public void run() {
+            System.out.println("Count " + count.value);
+        }
+    }
+
+    @Command(name = "login")
+    private static class LoginCommand implements Runnable {
+        @Option(names = "--password")
+        private String password;
+
+        @Override
+        public void run() {
+            System.out.println("Logged in");
+        }
+    }
+
+    @Command
+    private static class HandlerCommand {
+        private CommandLine context;
+
+        private List<CommandLine> commands;
+
+        @CommandHandler
+        ExitStatus handle(Greeter greeter, CommandLine context, List<CommandLine> commands) {
+            this.context = context;
+            this.commands = commands;
+            System.out.println(greeter.greeting + " World!");
+            return ExitStatus.TERMINATION;
+        }
+    }
+
+    private static class Greeter {
+        private final String greeting;
+
+        Greeter(String greeting) {
+            this.greeting = greeting;
+        }
+    }
+
+    private static class Count {
+        private final int value;
+
+        Count(int value) {
+            this.value = value;
+        }
+    }
 }
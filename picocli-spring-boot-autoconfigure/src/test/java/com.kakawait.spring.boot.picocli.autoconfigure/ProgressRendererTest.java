@@ -0,0 +1,89 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.test.rule.OutputCapture;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class ProgressRendererTest {
+
+    @Rule
+    public OutputCapture outputCapture = new OutputCapture();
+
+    @Test
+    public void execute_ProgressUpdatedByManyThreads_PrintSummaryLines() throws Exception {
+        PicocliCommandLineRunner runner = createRunner();
+
+        runner.execute("import");
+
+        String output = outputCapture.toString();
+        assertThat(output).contains("import 100% 40000/40000");
+        assertThat(output).doesNotContain("\u001B");
+        assertThat(Progress.current().getDone()).isZero();
+    }
+
+    @Test
+    public void execute_ProgressNotUsed_PrintNothing() throws Exception {
+        PicocliCommandLineRunner runner = createRunner();
+
+        runner.execute("noop");
+
+        assertThat(outputCapture.toString()).isEmpty();
+    }
+
+    private PicocliCommandLineRunner createRunner() {
+        CommandLine cli = new CommandLine(new MainCommand());
+        cli.addSubcommand("import", new ImportCommand());
+        cli.addSubcommand("noop", new NoopCommand());
+        PicocliCommandLineRunner runner = new PicocliCommandLineRunner(cli);
+        runner.setProgressIntervals(1, 5);
+        return runner;
+    }
+
+    @Command
+    static class MainCommand {
+    }
+
+    @Command(name = "import")
+    static class ImportCommand extends PicocliCommand {
+
+        @Override
+        public void run() {
+            Progress progress = getProgress();
+            progress.startPhase("import", 40_000);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                threads.add(new Thread(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        progress.increment();
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    @Command(name = "noop")
+    static class NoopCommand implements Runnable {
+
+        @Override
+        public void run() {
+        }
+    }
+}
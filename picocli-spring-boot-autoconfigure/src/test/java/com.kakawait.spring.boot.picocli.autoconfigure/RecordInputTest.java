@@ -0,0 +1,63 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class RecordInputTest {
+
+    @Test
+    public void forEachBatch_SingleWorker_BatchesInOrder() throws Exception {
+        List<List<String>> batches = new ArrayList<>();
+
+        RecordInput.of(input(5), 2, 1).forEachBatch(batches::add);
+
+        assertThat(batches).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.stream().flatMap(List::stream)).containsExactly("0", "1", "2", "3", "4");
+    }
+
+    @Test
+    public void forEachBatch_MultipleWorkers_ProcessEveryRecord() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+
+        RecordInput.of(input(10_000), 100, 4).forEachBatch(batch -> count.addAndGet(batch.size()));
+
+        assertThat(count.get()).isEqualTo(10_000);
+    }
+
+    @Test
+    public void forEachBatch_ConsumerFailure_Rethrow() {
+        RecordInput input = RecordInput.of(input(10_000), 10, 4);
+
+        assertThatThrownBy(() -> input.forEachBatch(batch -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+
+    @Test(timeout = 10_000)
+    public void forEachBatch_ConsumerError_RethrowWithoutBlocking() {
+        RecordInput input = RecordInput.of(input(10_000), 10, 4);
+
+        assertThatThrownBy(() -> input.forEachBatch(batch -> {
+            throw new AssertionError("boom");
+        })).isInstanceOf(AssertionError.class).hasMessage("boom");
+    }
+
+    private InputStream input(int records) {
+        String content = IntStream.range(0, records).mapToObj(Integer::toString).collect(Collectors.joining("\n"));
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package com.kakawait.spring.boot.picocli.autoconfigure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.test.rule.OutputCapture;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class StandardStreamsTest {
+
+    @Rule
+    public OutputCapture outputCapture = new OutputCapture();
+
+    @Test
+    public void redirect_PoolThreadCreatedDuringRedirection_DoesNotKeepRedirection() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            try (StandardStreams.Redirection ignored = StandardStreams.redirect(out, new ByteArrayOutputStream())) {
+                // Pool thread is created by the redirected thread
+                executor.submit(() -> System.out.println("first")).get();
+            }
+            executor.submit(() -> System.out.println("second")).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(out.toString()).isEmpty();
+        assertThat(outputCapture.toString()).contains("first").contains("second");
+    }
+
+    @Test
+    public void wrap_Redirection_TaskWritesToRedirection() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            try (StandardStreams.Redirection ignored = StandardStreams.redirect(out, new ByteArrayOutputStream())) {
+                executor.submit(StandardStreams.wrap(() -> {
+                    System.out.println("wrapped");
+                    return null;
+                })).get();
+            }
+            executor.submit(() -> System.out.println("unwrapped")).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(out.toString()).isEqualTo("wrapped" + System.lineSeparator());
+        assertThat(outputCapture.toString()).contains("unwrapped");
+    }
+}
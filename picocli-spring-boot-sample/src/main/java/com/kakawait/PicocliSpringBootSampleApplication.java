@@ -1,28 +1,33 @@
 package com.kakawait;
 
-import com.google.common.base.CaseFormat;
 import com.kakawait.spring.boot.picocli.autoconfigure.ExitStatus;
 import com.kakawait.spring.boot.picocli.autoconfigure.HelpAwarePicocliCommand;
-import com.kakawait.spring.boot.picocli.autoconfigure.PicocliConfigurerAdapter;
+import com.kakawait.spring.boot.picocli.autoconfigure.Progress;
 import org.flywaydb.core.Flyway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
-import picocli.CommandLine;
 import picocli.CommandLine.Help.Ansi;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static picocli.CommandLine.Command;
 
@@ -41,9 +46,7 @@ import static picocli.CommandLine.Command;
  *     migrate
  *     repair
  *   greeting [-h, --help] [NAME]
- *   health [-h, --help]
- *     db
- *     disk-space
+ *   health [NAME...]
  * }
  * </pre>
  * Thus running following commands should output following:
@@ -77,12 +80,16 @@ import static picocli.CommandLine.Command;
  * 2017-07-06 11:21:14.638  INFO 77637 --- [main] o.f.core.internal.command.DbMigrate      : Migrating schema "PUBLIC" to version 1 - init
  * 2017-07-06 11:21:14.666  INFO 77637 --- [main] o.f.core.internal.command.DbMigrate      : Migrating schema "PUBLIC" to version 2 - add
  * 2017-07-06 11:21:14.672  INFO 77637 --- [main] o.f.core.internal.command.DbMigrate      : Successfully applied 2 migrations to schema "PUBLIC" (execution time 00:00.053s).
+ * flyway: migrated 2 migrations in 112ms
  *
- * $> java -jar <name>.jar health disk-space
- * UP {total=420143575040, free=41032192000, threshold=10485760}
+ * $> java -jar <name>.jar health
+ * UP
+ *   diskSpace: UP {total=420143575040, free=41032192000, threshold=10485760}
+ *   db: UP {database=H2, hello=1}
  *
  * $> java -jar <name>.jar health db
- * UP {database=H2, hello=1}
+ * UP
+ *   db: UP {database=H2, hello=1}
  * }
  * </pre>
  * @author Thibaud Leprêtre
@@ -104,50 +111,6 @@ public class PicocliSpringBootSampleApplication {
         return flyway -> {};
     }
 
-    @Configuration
-    static class PicocliConfiguration extends PicocliConfigurerAdapter {
-
-        private static final Logger logger = LoggerFactory.getLogger(PicocliConfiguration.class);
-
-        private static final Pattern HEALTH_PATTERN = Pattern.compile("^(\\w+?)HealthIndicator$");
-
-        private final Map<String, HealthIndicator> healthIndicators;
-
-        public PicocliConfiguration(Map<String, HealthIndicator> healthIndicators) {
-            this.healthIndicators = healthIndicators;
-        }
-
-        @Override
-        public void configure(CommandLine cli) {
-            CommandLine healthCli = new CommandLine(new HelpAwareContainerPicocliCommand() {});
-            for (Map.Entry<String, HealthIndicator> entry : healthIndicators.entrySet()) {
-                Matcher matcher = HEALTH_PATTERN.matcher(entry.getKey());
-                if (matcher.matches()) {
-                    String name = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_HYPHEN, matcher.group(1));
-                    healthCli.addSubcommand(name, new PrintCommand(entry.getValue().health()));
-                } else {
-                    logger.warn("Unable to determine a correct name for given indicator: \"{}\", skip it!",
-                            entry.getKey());
-                }
-            }
-            cli.addSubcommand("health", healthCli);
-        }
-
-        @Command
-        private static class PrintCommand implements Runnable {
-            private final Object object;
-
-            PrintCommand(Object object) {
-                this.object = object;
-            }
-
-            @Override
-            public void run() {
-                System.out.println(object);
-            }
-        }
-    }
-
     @Component
     @Command
     static class MainCommand extends HelpAwarePicocliCommand {
@@ -185,19 +148,170 @@ public class PicocliSpringBootSampleApplication {
     @Command(name = "flyway")
     static class FlywayCommand extends HelpAwareContainerPicocliCommand {
 
+        private static final Logger logger = LoggerFactory.getLogger(FlywayCommand.class);
+
+        /**
+         * Migrates every tenant in parallel, a tenant being a {@link Flyway} bean or a {@link DataSource} bean not
+         * already used by one (migrated like first {@link Flyway} bean), optionally expanded to one tenant per schema.
+         */
         @Component
         @Command(name = "migrate")
         static class MigrateCommand implements Runnable {
 
-            private final Flyway flyway;
+            @Option(names = {"-p", "--parallelism"}, description = "maximum count of tenants migrated concurrently")
+            int parallelism = 4;
 
-            public MigrateCommand(Flyway flyway) {
-                this.flyway = flyway;
+            @Option(names = "--continue-on-error",
+                    description = "keep migrating remaining tenants once a tenant failed")
+            boolean continueOnError;
+
+            @Option(names = "--schemas", paramLabel = "SCHEMA", description = "schemas to migrate for each tenant")
+            String[] schemas = {};
+
+            private final Map<String, Flyway> flyways;
+
+            private final Map<String, DataSource> dataSources;
+
+            public MigrateCommand(Map<String, Flyway> flyways, Map<String, DataSource> dataSources) {
+                this.flyways = flyways;
+                this.dataSources = dataSources;
             }
 
             @Override
             public void run() {
-                flyway.migrate();
+                Map<String, Flyway> tenants = getTenants();
+                Progress progress = Progress.current();
+                progress.startPhase("migrate", tenants.size());
+                AtomicBoolean failed = new AtomicBoolean();
+                ExecutorService executor = Executors.newFixedThreadPool(
+                        Math.max(1, Math.min(parallelism, tenants.size())));
+                try {
+                    CompletionService<Migration> results = new ExecutorCompletionService<>(executor);
+                    for (Map.Entry<String, Flyway> tenant : tenants.entrySet()) {
+                        results.submit(() -> migrate(tenant.getKey(), tenant.getValue(), failed));
+                    }
+                    int failures = 0;
+                    int skipped = 0;
+                    for (int i = 0; i < tenants.size(); i++) {
+                        Migration migration = results.take().get();
+                        // Printed from invocation thread, thus routed to its standard output
+                        System.out.println(migration);
+                        if (migration.outcome == Migration.Outcome.FAILED) {
+                            failures++;
+                        } else if (migration.outcome == Migration.Outcome.SKIPPED) {
+                            skipped++;
+                        }
+                        progress.increment();
+                    }
+                    if (failures > 0) {
+                        throw new IllegalStateException(String.format("%d of %d tenants failed to migrate%s",
+                                failures, tenants.size(), skipped > 0 ? ", " + skipped + " skipped" : ""));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while migrating tenants", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unable to migrate tenants", e.getCause());
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            private Migration migrate(String name, Flyway flyway, AtomicBoolean failed) {
+                // Checked by each task before starting, thus pending tenants are skipped once a tenant failed
+                if (!continueOnError && failed.get()) {
+                    return new Migration(name, Migration.Outcome.SKIPPED, "skipped");
+                }
+                long start = System.nanoTime();
+                try {
+                    int applied = flyway.migrate();
+                    long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    return new Migration(name, Migration.Outcome.MIGRATED,
+                            String.format("migrated %d migrations in %dms", applied, duration));
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    logger.error("Unable to migrate tenant {}", name, e);
+                    return new Migration(name, Migration.Outcome.FAILED, "failed, " + e.getMessage());
+                }
+            }
+
+            private Map<String, Flyway> getTenants() {
+                Map<String, Flyway> tenants = new LinkedHashMap<>(flyways);
+                Flyway template = flyways.isEmpty() ? new Flyway() : flyways.values().iterator().next();
+                Set<DataSource> migrated = flyways.values().stream()
+                        .map(Flyway::getDataSource)
+                        .collect(Collectors.toSet());
+                dataSources.forEach((name, dataSource) -> {
+                    if (!migrated.contains(dataSource)) {
+                        tenants.put(name, copy(template, dataSource));
+                    }
+                });
+                if (schemas.length == 0) {
+                    return tenants;
+                }
+                Map<String, Flyway> schemaTenants = new LinkedHashMap<>();
+                tenants.forEach((name, flyway) -> {
+                    for (String schema : schemas) {
+                        Flyway schemaFlyway = copy(flyway, flyway.getDataSource());
+                        schemaFlyway.setSchemas(schema);
+                        schemaTenants.put(name + "/" + schema, schemaFlyway);
+                    }
+                });
+                return schemaTenants;
+            }
+
+            /**
+             * Copies whole configuration of given {@link Flyway}, Flyway 3 does not offer any way to do so.
+             */
+            private static Flyway copy(Flyway template, DataSource dataSource) {
+                Flyway flyway = new Flyway();
+                flyway.setDataSource(dataSource);
+                flyway.setClassLoader(template.getClassLoader());
+                flyway.setLocations(template.getLocations());
+                flyway.setSchemas(template.getSchemas());
+                flyway.setTable(template.getTable());
+                flyway.setEncoding(template.getEncoding());
+                flyway.setTarget(template.getTarget());
+                flyway.setPlaceholderReplacement(template.isPlaceholderReplacement());
+                flyway.setPlaceholders(new LinkedHashMap<>(template.getPlaceholders()));
+                flyway.setPlaceholderPrefix(template.getPlaceholderPrefix());
+                flyway.setPlaceholderSuffix(template.getPlaceholderSuffix());
+                flyway.setSqlMigrationPrefix(template.getSqlMigrationPrefix());
+                flyway.setSqlMigrationSeparator(template.getSqlMigrationSeparator());
+                flyway.setSqlMigrationSuffix(template.getSqlMigrationSuffix());
+                flyway.setIgnoreFailedFutureMigration(template.isIgnoreFailedFutureMigration());
+                flyway.setValidateOnMigrate(template.isValidateOnMigrate());
+                flyway.setCleanOnValidationError(template.isCleanOnValidationError());
+                // Deprecated init settings are aliases of baseline ones
+                flyway.setBaselineVersion(template.getBaselineVersion());
+                flyway.setBaselineDescription(template.getBaselineDescription());
+                flyway.setBaselineOnMigrate(template.isBaselineOnMigrate());
+                flyway.setOutOfOrder(template.isOutOfOrder());
+                flyway.setCallbacks(template.getCallbacks());
+                flyway.setResolvers(template.getResolvers());
+                return flyway;
+            }
+        }
+
+        private static final class Migration {
+
+            enum Outcome {MIGRATED, FAILED, SKIPPED}
+
+            private final String tenant;
+
+            private final Outcome outcome;
+
+            private final String detail;
+
+            Migration(String tenant, Outcome outcome, String detail) {
+                this.tenant = tenant;
+                this.outcome = outcome;
+                this.detail = detail;
+            }
+
+            @Override
+            public String toString() {
+                return tenant + ": " + detail;
             }
         }
 
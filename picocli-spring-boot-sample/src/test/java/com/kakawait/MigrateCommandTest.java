@@ -0,0 +1,130 @@
+package com.kakawait;
+
+import com.kakawait.PicocliSpringBootSampleApplication.FlywayCommand.MigrateCommand;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Thibaud Leprêtre
+ */
+public class MigrateCommandTest {
+
+    @Rule
+    public OutputCapture outputCapture = new OutputCapture();
+
+    @Test
+    public void run_MultipleDataSources_MigratesEveryTenant() {
+        Map<String, DataSource> dataSources = tenants("tenant-a", "tenant-b", "tenant-c");
+        MigrateCommand command = new MigrateCommand(Collections.emptyMap(), dataSources);
+
+        command.run();
+
+        dataSources.values().forEach(dataSource -> assertThat(countPersons(dataSource)).isEqualTo(2));
+        assertThat(outputCapture.toString())
+                .contains("tenant-a: migrated 2 migrations")
+                .contains("tenant-b: migrated 2 migrations")
+                .contains("tenant-c: migrated 2 migrations");
+    }
+
+    @Test
+    public void run_FailingTenantAndContinueOnError_MigratesOtherTenantsAndFails() {
+        Map<String, DataSource> dataSources = tenants("tenant-a", "tenant-b", "tenant-c");
+        new JdbcTemplate(dataSources.get("tenant-b")).execute("CREATE TABLE person (id BIGINT)");
+        MigrateCommand command = new MigrateCommand(Collections.emptyMap(), dataSources);
+        command.continueOnError = true;
+
+        assertThatThrownBy(command::run)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("1 of 3 tenants failed to migrate");
+
+        assertThat(countPersons(dataSources.get("tenant-a"))).isEqualTo(2);
+        assertThat(countPersons(dataSources.get("tenant-c"))).isEqualTo(2);
+        assertThat(outputCapture.toString()).contains("tenant-b: failed");
+    }
+
+    @Test
+    public void run_FailingTenantAndFailFast_SkipsPendingTenants() {
+        Map<String, DataSource> dataSources = tenants("tenant-a", "tenant-b", "tenant-c");
+        new JdbcTemplate(dataSources.get("tenant-a")).execute("CREATE TABLE person (id BIGINT)");
+        MigrateCommand command = new MigrateCommand(Collections.emptyMap(), dataSources);
+        command.parallelism = 1;
+
+        assertThatThrownBy(command::run)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("1 of 3 tenants failed to migrate, 2 skipped");
+
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSources.get("tenant-c"));
+        assertThat(flyway.info().applied()).isEmpty();
+        assertThat(outputCapture.toString()).contains("tenant-b: skipped").contains("tenant-c: skipped");
+    }
+
+    @Test
+    public void run_Schemas_MigratesEverySchemaOfFlywayBean() {
+        DataSource dataSource = tenants("tenant").get("tenant");
+        new JdbcTemplate(dataSource).execute("CREATE SCHEMA a; CREATE SCHEMA b");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        MigrateCommand command = new MigrateCommand(Collections.singletonMap("flyway", flyway),
+                Collections.singletonMap("dataSource", dataSource));
+        command.schemas = new String[]{"A", "B"};
+
+        command.run();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM a.person", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM b.person", Integer.class)).isEqualTo(2);
+        assertThat(outputCapture.toString()).contains("flyway/A: migrated").contains("flyway/B: migrated");
+    }
+
+    @Test
+    public void run_Schemas_KeepsFlywayBeanConfiguration() {
+        DataSource dataSource = tenants("tenant").get("tenant");
+        new JdbcTemplate(dataSource).execute("CREATE SCHEMA a; CREATE SCHEMA b");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTable("schema_history");
+        flyway.setTarget(MigrationVersion.fromVersion("1"));
+        MigrateCommand command = new MigrateCommand(Collections.singletonMap("flyway", flyway),
+                Collections.singletonMap("dataSource", dataSource));
+        command.schemas = new String[]{"A", "B"};
+
+        command.run();
+
+        for (String schema : command.schemas) {
+            Flyway schemaFlyway = new Flyway();
+            schemaFlyway.setDataSource(dataSource);
+            schemaFlyway.setSchemas(schema);
+            schemaFlyway.setTable("schema_history");
+            assertThat(schemaFlyway.info().applied()).hasSize(1);
+        }
+    }
+
+    private static Map<String, DataSource> tenants(String... names) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (String name : names) {
+            // Unique database per test, kept until the JVM exits
+            dataSources.put(name, new DriverManagerDataSource(
+                    "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        }
+        return dataSources;
+    }
+
+    private static int countPersons(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM person", Integer.class);
+    }
+}
@@ -0,0 +1,259 @@
+package com.kakawait;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End to end startup regression harness, launches packaged jar for representative invocations and compares
+ * time-to-exit, peak resident memory (Linux only) and loaded class count against {@code startup-baselines.properties}.
+ *
+ * Time and memory depend on the machine, thus they are compared as ratios to the {@value #REFERENCE} invocation
+ * measured by the same build. Class count does not, thus it is compared as is.
+ *
+ * Only run by {@code startup-regression} profile: {@code mvn verify -Pstartup-regression}. Measures are written to
+ * {@code target/startup-measures.properties} and can be copied as new baselines after an intended change.
+ *
+ * @author Thibaud Leprêtre
+ */
+@RunWith(Parameterized.class)
+public class StartupRegressionIT {
+
+    private static final Pattern VM_HWM = Pattern.compile("^VmHWM:\\s+(\\d+) kB$", Pattern.MULTILINE);
+
+    private static final String REFERENCE = "help";
+
+    private static final String[] REFERENCE_ARGS = {"-h"};
+
+    private static Measure reference;
+
+    private static final Properties baselines = load();
+
+    private static final Properties measures = new Properties();
+
+    private final String name;
+
+    private final String[] args;
+
+    public StartupRegressionIT(String name, String[] args) {
+        this.name = name;
+        this.args = args;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> invocations() {
+        return Arrays.asList(new Object[][]{
+                {REFERENCE, REFERENCE_ARGS},
+                {"greeting", new String[]{"greeting"}},
+                {"flyway-migrate", new String[]{"flyway", "migrate"}},
+                {"health-db", new String[]{"health", "db"}}
+        });
+    }
+
+    @AfterClass
+    public static void writeMeasures() throws IOException {
+        Path file = Paths.get("target", "startup-measures.properties");
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            measures.store(out, "Startup measures, copy to src/test/resources/startup-baselines.properties to rebase");
+        }
+    }
+
+    @Test
+    public void startup_Invocation_WithinBaselines() throws Exception {
+        Measure reference = getReference();
+        Measure measure = name.equals(REFERENCE) ? reference : measure(args);
+
+        check("classes", measure.classes);
+        if (measure != reference) {
+            check("time-ratio", ratio(measure.time, reference.time));
+            check("peak-rss-ratio", ratio(measure.peakRss, reference.peakRss));
+        }
+    }
+
+    private static synchronized Measure getReference() throws IOException, InterruptedException {
+        if (reference == null) {
+            reference = measure(REFERENCE_ARGS);
+            measures.setProperty(REFERENCE + ".time-ms", Long.toString(reference.time));
+            measures.setProperty(REFERENCE + ".peak-rss-kb", Long.toString(reference.peakRss));
+        }
+        return reference;
+    }
+
+    /**
+     * Returns median time and highest peak resident memory of several runs, and loaded class count.
+     */
+    private static Measure measure(String[] args) throws IOException, InterruptedException {
+        int runs = Integer.getInteger("startup.runs", 5);
+        // Warm file system cache
+        launch(args, false);
+        List<Long> times = new ArrayList<>();
+        long peakRss = -1;
+        for (int i = 0; i < runs; i++) {
+            Measure measure = launch(args, false);
+            times.add(measure.time);
+            peakRss = Math.max(peakRss, measure.peakRss);
+        }
+        Collections.sort(times);
+        // Class loading logging slows startup down, thus count classes on a dedicated run
+        int classes = launch(args, true).classes;
+        return new Measure(times.get(times.size() / 2), peakRss, classes);
+    }
+
+    private static double ratio(long value, long reference) {
+        return value < 0 || reference <= 0 ? -1 : (double) value / reference;
+    }
+
+    private void check(String metric, double value) {
+        if (value < 0) {
+            return;
+        }
+        String key = name + "." + metric;
+        measures.setProperty(key, value == Math.rint(value)
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.3f", value));
+        String baseline = baselines.getProperty(key);
+        if (baseline == null) {
+            return;
+        }
+        double tolerance = Double.parseDouble(System.getProperty("startup.tolerance." + metric,
+                baselines.getProperty("tolerance." + metric, "0.2")));
+        double threshold = Double.parseDouble(baseline) * (1 + tolerance);
+        assertThat(value).as("%s (baseline %s, tolerance %s)", key, baseline, tolerance).isLessThanOrEqualTo(threshold);
+    }
+
+    private static Measure launch(String[] args, boolean verboseClass) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (verboseClass) {
+            command.add("-verbose:class");
+        }
+        command.add("-jar");
+        command.add(System.getProperty("startup.jar"));
+        command.addAll(Arrays.asList(args));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        AtomicInteger classes = new AtomicInteger();
+        Thread reader = new Thread(() -> count(process.getInputStream(), classes));
+        reader.start();
+        Path status = getStatusFile(process);
+        long peakRss = -1;
+        while (!process.waitFor(5, TimeUnit.MILLISECONDS)) {
+            // High water mark is monotonic, last successful read is the closest to the peak
+            peakRss = Math.max(peakRss, readHighWaterMark(status));
+        }
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        reader.join();
+        assertThat(process.exitValue()).as("exit code of %s", command).isEqualTo(0);
+        return new Measure(time, peakRss, classes.get());
+    }
+
+    private static void count(InputStream in, AtomicInteger classes) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Java 8 and unified logging (Java 9+) formats
+                if (line.startsWith("[Loaded ") || line.contains("[class,load]")) {
+                    classes.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path getStatusFile(Process process) {
+        Long pid = getPid(process);
+        if (pid == null) {
+            return null;
+        }
+        Path status = Paths.get("/proc", pid.toString(), "status");
+        return Files.exists(status) ? status : null;
+    }
+
+    private static Long getPid(Process process) {
+        try {
+            Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return ((Number) field.get(process)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long readHighWaterMark(Path status) {
+        if (status == null) {
+            return -1;
+        }
+        try {
+            Matcher matcher = VM_HWM.matcher(new String(Files.readAllBytes(status), StandardCharsets.UTF_8));
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        } catch (IOException e) {
+            // Process exited meanwhile
+            return -1;
+        }
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = StartupRegressionIT.class.getResourceAsStream("/startup-baselines.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+
+    private static class Measure {
+
+        private final long time;
+
+        private final long peakRss;
+
+        private final int classes;
+
+        Measure(long time, long peakRss, int classes) {
+            this.time = time;
+            this.peakRss = peakRss;
+            this.classes = classes;
+        }
+    }
+}